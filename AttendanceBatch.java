@@ -0,0 +1,124 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.*;
+
+/*
+ * Exports several periods' attendance at once, for end-of-day reporting.
+ * Each period's chart is read, and its file written, on its own thread.
+ * Output is one Attendence_<date>_P<n>.<ext> per period, or a single
+ * Attendence_<date>_all.<ext> with the periods in the order given; that one
+ * is streamed out in order as the charts come in.
+ *
+ * A period that fails to read or write is reported in its result and left
+ * out of a combined file; the others are still written.
+ */
+class AttendanceBatch {
+
+    interface ChartSource {
+        ChartData load(String period) throws IOException;
+    }
+
+    static final class Result {
+        final String period;
+        final File file;
+        final Exception error;
+
+        Result(String period, File file, Exception error) {
+            this.period = period;
+            this.file = file;
+            this.error = error;
+        }
+    }
+
+    private AttendanceBatch() {
+    }
+
+    static File fileFor(File directory, LocalDate date, String period, AttendanceExporter exporter) {
+        return new File(directory, "Attendence_" + date + "_" + period + "." + exporter.extension());
+    }
+
+    static java.util.List<Result> export(java.util.List<String> periods, ChartSource source, AttendanceExporter exporter,
+                                         LocalDate date, File outDir, boolean combined) {
+        java.util.List<Result> results = new ArrayList<>();
+        if (periods.isEmpty()) {
+            return results;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(periods.size(), Runtime.getRuntime().availableProcessors()), r -> {
+                    Thread thread = new Thread(r, "attendance-export");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        try {
+            java.util.List<Future<ChartData>> charts = new ArrayList<>();
+            for (String period : periods) {
+                charts.add(executor.submit(() -> {
+                    ChartData chart = source.load(period);
+                    if (!combined) {
+                        try (Writer out = openWriter(fileFor(outDir, date, period, exporter))) {
+                            exporter.writeHeader(out, false);
+                            exporter.writePeriod(out, date, period, chart, 0, false);
+                            exporter.writeFooter(out, false);
+                        }
+                    }
+                    return chart;
+                }));
+            }
+
+            if (combined) {
+                writeCombined(periods, charts, exporter, date, fileFor(outDir, date, "all", exporter), results);
+            } else {
+                for (int i = 0; i < periods.size(); i++) {
+                    String period = periods.get(i);
+                    Exception error = failureOf(charts.get(i));
+                    results.add(new Result(period, error == null ? fileFor(outDir, date, period, exporter) : null, error));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return results;
+    }
+
+    private static void writeCombined(java.util.List<String> periods, java.util.List<Future<ChartData>> charts,
+                                      AttendanceExporter exporter, LocalDate date, File file,
+                                      java.util.List<Result> results) {
+        int written = 0;
+        try (Writer out = openWriter(file)) {
+            exporter.writeHeader(out, true);
+            for (int i = 0; i < periods.size(); i++) {
+                String period = periods.get(i);
+                Exception error = failureOf(charts.get(i));
+                if (error != null) {
+                    results.add(new Result(period, null, error));
+                    continue;
+                }
+                exporter.writePeriod(out, date, period, charts.get(i).get(), written++, true);
+                results.add(new Result(period, file, null));
+            }
+            exporter.writeFooter(out, true);
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            results.add(new Result("all", file, e));
+        }
+    }
+
+    // Waits for the task and returns what it failed with, or null
+    private static Exception failureOf(Future<?> task) {
+        try {
+            task.get();
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return e;
+        }
+    }
+
+    private static Writer openWriter(File file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16);
+    }
+}
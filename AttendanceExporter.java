@@ -0,0 +1,209 @@
+import java.io.*;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/*
+ * Writes a period's attendance in one output format. Exporters stream
+ * straight from the chart in seat order; only the original text format
+ * sorts, through AttendanceReport.
+ *
+ * A file holds one period or, for a combined export, several: the header,
+ * each period in turn, then the footer. Exporters keep no state, so one
+ * instance can write several periods at once.
+ */
+interface AttendanceExporter {
+
+    // For file choosers, e.g. "CSV (.csv)"
+    String description();
+
+    // File extension without the dot
+    String extension();
+
+    default void writeHeader(Writer out, boolean combined) throws IOException {
+    }
+
+    // index is the period's place in a combined file, 0 for a single period
+    void writePeriod(Writer out, LocalDate date, String period, ChartData chart, int index, boolean combined)
+            throws IOException;
+
+    default void writeFooter(Writer out, boolean combined) throws IOException {
+    }
+
+    /* ================= FORMATS ================= */
+    // Built-in formats by name, in menu order
+    static Map<String, AttendanceExporter> formats() {
+        Map<String, AttendanceExporter> formats = new LinkedHashMap<>();
+        formats.put("text", new Text());
+        formats.put("csv", new Csv());
+        formats.put("json", new Json());
+        formats.put("sis", new Sis());
+        return formats;
+    }
+
+    static AttendanceExporter forName(String name) {
+        return formats().get(name.toLowerCase(Locale.ROOT));
+    }
+
+    // Null for an empty seat, otherwise the student's mark
+    static AttendanceStore.Status statusOf(ChartData chart, int seat) {
+        if (chart.getName(seat) == null) {
+            return null;
+        }
+        if (chart.isDisabled(seat)) {
+            return AttendanceStore.Status.ABSENT;
+        }
+        return chart.isTardy(seat) ? AttendanceStore.Status.TARDY : AttendanceStore.Status.PRESENT;
+    }
+
+    // The Attendence_<date>_P<n>.txt layout; periods in a combined file are
+    // headed by their tag
+    final class Text implements AttendanceExporter {
+        public String description() {
+            return "Text (.txt)";
+        }
+
+        public String extension() {
+            return "txt";
+        }
+
+        public void writePeriod(Writer out, LocalDate date, String period, ChartData chart, int index, boolean combined)
+                throws IOException {
+            if (combined) {
+                String newline = System.lineSeparator();
+                out.write((index > 0 ? newline : "") + period + newline + newline);
+            }
+            AttendanceReport.of(chart).writeText(out);
+        }
+    }
+
+    // Date,Period,Seat,Name,Status, one row per seated student
+    final class Csv implements AttendanceExporter {
+        public String description() {
+            return "CSV (.csv)";
+        }
+
+        public String extension() {
+            return "csv";
+        }
+
+        public void writeHeader(Writer out, boolean combined) throws IOException {
+            out.write("Date,Period,Seat,Name,Status\r\n");
+        }
+
+        public void writePeriod(Writer out, LocalDate date, String period, ChartData chart, int index, boolean combined)
+                throws IOException {
+            RoomLayout layout = chart.getLayout();
+            String prefix = date + "," + period + ",";
+            for (int seat = 0; seat < chart.seatCount(); seat++) {
+                AttendanceStore.Status status = statusOf(chart, seat);
+                if (status == null) {
+                    continue;
+                }
+                out.write(prefix);
+                ChartCodec.writeField(out, layout.seatId(seat));
+                out.write(',');
+                ChartCodec.writeField(out, chart.getName(seat));
+                out.write(',');
+                out.write(status.name().toLowerCase(Locale.ROOT));
+                out.write("\r\n");
+            }
+        }
+    }
+
+    // {"date":..,"period":..,"students":[{"seat":..,"name":..,"status":..}]},
+    // an array of them for a combined file
+    final class Json implements AttendanceExporter {
+        public String description() {
+            return "JSON (.json)";
+        }
+
+        public String extension() {
+            return "json";
+        }
+
+        public void writeHeader(Writer out, boolean combined) throws IOException {
+            if (combined) {
+                out.write('[');
+            }
+        }
+
+        public void writeFooter(Writer out, boolean combined) throws IOException {
+            out.write(combined ? "]\n" : "\n");
+        }
+
+        public void writePeriod(Writer out, LocalDate date, String period, ChartData chart, int index, boolean combined)
+                throws IOException {
+            if (index > 0) {
+                out.write(",\n");
+            }
+            out.write("{\"date\":\"" + date + "\",\"period\":");
+            writeString(out, period);
+            out.write(",\"students\":[");
+            RoomLayout layout = chart.getLayout();
+            boolean firstStudent = true;
+            for (int seat = 0; seat < chart.seatCount(); seat++) {
+                AttendanceStore.Status status = statusOf(chart, seat);
+                if (status == null) {
+                    continue;
+                }
+                out.write(firstStudent ? "\n  {\"seat\":" : ",\n  {\"seat\":");
+                firstStudent = false;
+                writeString(out, layout.seatId(seat));
+                out.write(",\"name\":");
+                writeString(out, chart.getName(seat));
+                out.write(",\"status\":\"" + status.name().toLowerCase(Locale.ROOT) + "\"}");
+            }
+            out.write("\n]}");
+        }
+
+        private static void writeString(Writer out, String value) throws IOException {
+            out.write('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    out.write('\\');
+                    out.write(c);
+                } else if (c < 0x20) {
+                    out.write(String.format("\\u%04x", (int) c));
+                } else {
+                    out.write(c);
+                }
+            }
+            out.write('"');
+        }
+    }
+
+    // Student Name,Date,Period,Attendance Code with P/T/A codes and US dates,
+    // the column set most SIS attendance imports map from
+    final class Sis implements AttendanceExporter {
+        public String description() {
+            return "SIS import (.csv)";
+        }
+
+        private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+
+        public String extension() {
+            return "csv";
+        }
+
+        public void writeHeader(Writer out, boolean combined) throws IOException {
+            out.write("Student Name,Date,Period,Attendance Code\r\n");
+        }
+
+        public void writePeriod(Writer out, LocalDate date, String period, ChartData chart, int index, boolean combined)
+                throws IOException {
+            String suffix = "," + date.format(DATE) + "," + (period.startsWith("P") ? period.substring(1) : period) + ",";
+            for (int seat = 0; seat < chart.seatCount(); seat++) {
+                AttendanceStore.Status status = statusOf(chart, seat);
+                if (status == null) {
+                    continue;
+                }
+                ChartCodec.writeField(out, chart.getName(seat));
+                out.write(suffix);
+                out.write(status.name().charAt(0));
+                out.write("\r\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * A period's attendance split into absent (disabled), tardy and present
+ * students, each sorted by name. Empty seats are left out.
+ */
+class AttendanceReport {
+
+    private final List<String> absent = new ArrayList<>();
+    private final List<String> tardy = new ArrayList<>();
+    private final List<String> present = new ArrayList<>();
+
+    static AttendanceReport of(ChartData chart) {
+        AttendanceReport report = new AttendanceReport();
+        for (int seat = 0; seat < chart.seatCount(); seat++) {
+            String name = chart.getName(seat);
+            if (name == null) {
+                continue;
+            }
+
+            if (chart.isDisabled(seat)) {
+                report.absent.add(name);
+            } else if (chart.isTardy(seat)) {
+                report.tardy.add(name);
+            } else {
+                report.present.add(name);
+            }
+        }
+
+        Collections.sort(report.absent);
+        Collections.sort(report.tardy);
+        Collections.sort(report.present);
+        return report;
+    }
+
+    List<String> getAbsent() {
+        return Collections.unmodifiableList(absent);
+    }
+
+    List<String> getTardy() {
+        return Collections.unmodifiableList(tardy);
+    }
+
+    List<String> getPresent() {
+        return Collections.unmodifiableList(present);
+    }
+
+    void writeText(File file) throws IOException {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writeText(writer);
+        }
+    }
+
+    // The Attendence_<date>_P<n>.txt layout. Names are joined with ", ";
+    // one holding a comma or quote is quoted CSV style so it reads back whole.
+    void writeText(Writer writer) throws IOException {
+        PrintWriter pw = new PrintWriter(new BufferedWriter(writer));
+        writeSection(pw, "Absent:", absent);
+        pw.println();
+        writeSection(pw, "Tardy:", tardy);
+        pw.println();
+        writeSection(pw, "Present:", present);
+        pw.flush();
+        if (pw.checkError()) {
+            throw new IOException("Could not write attendance");
+        }
+    }
+
+    // Reads a file written by writeText (as UTF-8, like every export)
+    static AttendanceReport readText(File file) throws IOException {
+        AttendanceReport report = new AttendanceReport();
+        List<String> section = null;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.equals("Absent:")) {
+                    section = report.absent;
+                } else if (line.equals("Tardy:")) {
+                    section = report.tardy;
+                } else if (line.equals("Present:")) {
+                    section = report.present;
+                } else if (section != null && !line.isEmpty() && !line.equals("None")) {
+                    readNames(line, section);
+                }
+            }
+        }
+        if (section == null) {
+            throw new IOException("not an attendance file");
+        }
+        return report;
+    }
+
+    // Splits a name line at commas outside quotes
+    private static void readNames(String line, List<String> names) {
+        StringBuilder name = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"' && quoted && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                name.append('"');
+                i++;
+            } else if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                addName(names, name);
+            } else {
+                name.append(c);
+            }
+        }
+        addName(names, name);
+    }
+
+    private static void addName(List<String> names, StringBuilder name) {
+        String trimmed = name.toString().trim();
+        if (!trimmed.isEmpty()) {
+            names.add(trimmed);
+        }
+        name.setLength(0);
+    }
+
+    private static void writeSection(PrintWriter pw, String title, List<String> names) throws IOException {
+        pw.println(title);
+        pw.println();
+        if (!names.isEmpty()) {
+            for (int i = 0; i < names.size(); i++) {
+                if (i > 0) {
+                    pw.print(", ");
+                }
+                ChartCodec.writeField(pw, names.get(i));
+            }
+            pw.println();
+        } else {
+            pw.println("None");
+        }
+    }
+}
@@ -0,0 +1,398 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/*
+ * Append-only attendance history, attendance_history.log in Documents. Every
+ * time a period's attendance is taken its full state is appended; a later
+ * take for the same date and period replaces the earlier one in queries, so
+ * fixing a mark and recording again is fine.
+ *
+ * The whole file is read once and indexed in memory by date (and period) and
+ * by student, so range and per-student queries only touch matching takes.
+ * A year of six periods is a few hundred KB.
+ *
+ * Records are framed like SeatJournal's: int payload length, payload, int
+ * CRC32, and a torn tail ends the read. A payload is either a name (type 1,
+ * UTF name; names are numbered in the order they appear) or a take (type 2,
+ * int epoch day, UTF period, varint count, then varint (name id << 2 | status)
+ * per student). A take's new names are written in the same append, before it.
+ *
+ * Not thread safe; the app only touches it on the chart I/O thread.
+ */
+class AttendanceStore {
+
+    static final String FILE_NAME = "attendance_history.log";
+
+    enum Status {
+        PRESENT, TARDY, ABSENT
+    }
+
+    private static final Status[] STATUSES = Status.values();
+    private static final int TYPE_NAME = 1;
+    private static final int TYPE_TAKE = 2;
+    private static final int MAX_RECORD = 1 << 20;
+
+    private static final class Take {
+        final int day;
+        final String period;
+        final int[] students;
+        final byte[] statuses;
+
+        Take(int day, String period, int[] students, byte[] statuses) {
+            this.day = day;
+            this.period = period;
+            this.students = students;
+            this.statuses = statuses;
+        }
+    }
+
+    // Per student totals over a query
+    static final class Tally {
+        int present;
+        int tardy;
+        int absent;
+
+        int get(Status status) {
+            switch (status) {
+                case TARDY:
+                    return tardy;
+                case ABSENT:
+                    return absent;
+                default:
+                    return present;
+            }
+        }
+
+        private void add(Status status) {
+            switch (status) {
+                case TARDY:
+                    tardy++;
+                    break;
+                case ABSENT:
+                    absent++;
+                    break;
+                default:
+                    present++;
+            }
+        }
+    }
+
+    // One student's mark in one take
+    static final class Entry {
+        final LocalDate date;
+        final String period;
+        final Status status;
+
+        Entry(LocalDate date, String period, Status status) {
+            this.date = date;
+            this.period = period;
+            this.status = status;
+        }
+    }
+
+    private final File file;
+    private final boolean writable;
+
+    private final java.util.List<String> names = new ArrayList<>();
+    private final Map<String, Integer> nameIds = new HashMap<>();
+
+    // Current take per day and period; replaced takes drop out of both indexes
+    private final NavigableMap<Integer, Map<String, Take>> byDay = new TreeMap<>();
+    private final java.util.List<Set<Take>> byStudent = new ArrayList<>();
+
+    private AttendanceStore(File file, boolean writable) {
+        this.file = file;
+        this.writable = writable;
+    }
+
+    static File fileIn(File directory) {
+        return new File(directory, FILE_NAME);
+    }
+
+    /* ================= LOADING ================= */
+    // For recording; only one writer should have the file open at a time
+    static AttendanceStore open(File file) throws IOException {
+        return open(file, true);
+    }
+
+    // For queries. A short tail is left alone, since it may be another
+    // process's append still being written.
+    static AttendanceStore openReadOnly(File file) throws IOException {
+        return open(file, false);
+    }
+
+    private static AttendanceStore open(File file, boolean writable) throws IOException {
+        AttendanceStore store = new AttendanceStore(file, writable);
+        if (!file.isFile()) {
+            return store;
+        }
+
+        CRC32 crc = new CRC32();
+        long validLength = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    crc.reset();
+                    crc.update(payload, 0, length);
+                    if (in.readInt() != (int) crc.getValue()) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                store.apply(new DataInputStream(new ByteArrayInputStream(payload)));
+                validLength += 8 + payload.length;
+            }
+        }
+
+        // Cut off a torn tail so later appends aren't stranded behind it
+        if (writable && validLength < file.length()) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            }
+        }
+        return store;
+    }
+
+    private void apply(DataInputStream record) throws IOException {
+        int type = record.readByte();
+        if (type == TYPE_NAME) {
+            addName(record.readUTF());
+        } else if (type == TYPE_TAKE) {
+            int day = record.readInt();
+            String period = record.readUTF();
+            int count = readVarint(record);
+            int[] students = new int[count];
+            byte[] statuses = new byte[count];
+            for (int i = 0; i < count; i++) {
+                int packed = readVarint(record);
+                students[i] = packed >>> 2;
+                statuses[i] = (byte) Math.min(packed & 3, STATUSES.length - 1);
+                if (students[i] >= names.size()) {
+                    throw new IOException("attendance history refers to unknown name " + students[i]);
+                }
+            }
+            index(new Take(day, period, students, statuses));
+        }
+        // Unknown types are from a newer version; skip them
+    }
+
+    private int addName(String name) {
+        int id = names.size();
+        names.add(name);
+        nameIds.put(name, id);
+        byStudent.add(new HashSet<>());
+        return id;
+    }
+
+    private void index(Take take) {
+        Take replaced = byDay.computeIfAbsent(take.day, day -> new HashMap<>()).put(take.period, take);
+        if (replaced != null) {
+            for (int student : replaced.students) {
+                byStudent.get(student).remove(replaced);
+            }
+        }
+        for (int student : take.students) {
+            byStudent.get(student).add(take);
+        }
+    }
+
+    /* ================= RECORDING ================= */
+    // Appends the period's attendance for the date and fsyncs it
+    void record(LocalDate date, String period, AttendanceReport report) throws IOException {
+        if (!writable) {
+            throw new IllegalStateException("attendance history opened read-only");
+        }
+        int firstNewName = names.size();
+        int count = report.getAbsent().size() + report.getTardy().size() + report.getPresent().size();
+        int[] students = new int[count];
+        byte[] statuses = new byte[count];
+        int filled = 0;
+        for (Status status : STATUSES) {
+            for (String name : namesWith(report, status)) {
+                Integer id = nameIds.get(name);
+                students[filled] = id != null ? id : addName(name);
+                statuses[filled++] = (byte) status.ordinal();
+            }
+        }
+
+        java.util.List<byte[]> payloads = new ArrayList<>();
+        for (int id = firstNewName; id < names.size(); id++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(TYPE_NAME);
+            out.writeUTF(names.get(id));
+            payloads.add(bytes.toByteArray());
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + period.length() + 3 * count);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(TYPE_TAKE);
+        out.writeInt((int) date.toEpochDay());
+        out.writeUTF(period);
+        writeVarint(out, count);
+        for (int i = 0; i < count; i++) {
+            writeVarint(out, students[i] << 2 | statuses[i]);
+        }
+        payloads.add(bytes.toByteArray());
+
+        try {
+            append(payloads);
+        } catch (IOException e) {
+            while (names.size() > firstNewName) {
+                nameIds.remove(names.remove(names.size() - 1));
+                byStudent.remove(byStudent.size() - 1);
+            }
+            throw e;
+        }
+        index(new Take((int) date.toEpochDay(), period, students, statuses));
+    }
+
+    private static java.util.List<String> namesWith(AttendanceReport report, Status status) {
+        switch (status) {
+            case TARDY:
+                return report.getTardy();
+            case ABSENT:
+                return report.getAbsent();
+            default:
+                return report.getPresent();
+        }
+    }
+
+    private void append(java.util.List<byte[]> payloads) throws IOException {
+        int size = 0;
+        for (byte[] payload : payloads) {
+            size += 8 + payload.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        CRC32 crc = new CRC32();
+        for (byte[] payload : payloads) {
+            crc.reset();
+            crc.update(payload, 0, payload.length);
+            buffer.putInt(payload.length).put(payload).putInt((int) crc.getValue());
+        }
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("bad varint in attendance history");
+    }
+
+    /* ================= QUERIES ================= */
+    // Totals per student for takes between from and to inclusive, in one
+    // period or all of them (period null). Students are sorted by name.
+    SortedMap<String, Tally> tally(LocalDate from, LocalDate to, String period) {
+        Tally[] tallies = new Tally[names.size()];
+        for (Map<String, Take> takes : byDay.subMap((int) from.toEpochDay(), true, (int) to.toEpochDay(), true).values()) {
+            for (Take take : takes.values()) {
+                if (period != null && !period.equals(take.period)) {
+                    continue;
+                }
+                for (int i = 0; i < take.students.length; i++) {
+                    int student = take.students[i];
+                    if (tallies[student] == null) {
+                        tallies[student] = new Tally();
+                    }
+                    tallies[student].add(STATUSES[take.statuses[i]]);
+                }
+            }
+        }
+
+        SortedMap<String, Tally> result = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int student = 0; student < tallies.length; student++) {
+            if (tallies[student] != null) {
+                result.merge(names.get(student), tallies[student], AttendanceStore::combine);
+            }
+        }
+        return result;
+    }
+
+    // Names spelled with different case are one student in tallies
+    private static Tally combine(Tally a, Tally b) {
+        a.present += b.present;
+        a.tardy += b.tardy;
+        a.absent += b.absent;
+        return a;
+    }
+
+    // Students marked with status at least minCount times between from and
+    // to across every period, most first
+    java.util.List<Map.Entry<String, Tally>> atLeast(Status status, int minCount, LocalDate from, LocalDate to) {
+        java.util.List<Map.Entry<String, Tally>> result = new ArrayList<>();
+        for (Map.Entry<String, Tally> entry : tally(from, to, null).entrySet()) {
+            if (entry.getValue().get(status) >= minCount) {
+                result.add(entry);
+            }
+        }
+        result.sort((a, b) -> Integer.compare(b.getValue().get(status), a.getValue().get(status)));
+        return result;
+    }
+
+    // A student's marks between from and to, oldest first
+    java.util.List<Entry> history(String name, LocalDate from, LocalDate to) {
+        int first = (int) from.toEpochDay();
+        int last = (int) to.toEpochDay();
+        java.util.List<Entry> result = new ArrayList<>();
+        for (int student = 0; student < names.size(); student++) {
+            if (!names.get(student).equalsIgnoreCase(name)) {
+                continue;
+            }
+            for (Take take : byStudent.get(student)) {
+                if (take.day < first || take.day > last) {
+                    continue;
+                }
+                for (int i = 0; i < take.students.length; i++) {
+                    if (take.students[i] == student) {
+                        result.add(new Entry(LocalDate.ofEpochDay(take.day), take.period, STATUSES[take.statuses[i]]));
+                    }
+                }
+            }
+        }
+        result.sort(Comparator.comparing((Entry entry) -> entry.date).thenComparing(entry -> entry.period));
+        return result;
+    }
+
+    // Dates with at least one take, for picking a query range
+    LocalDate firstDate() {
+        return byDay.isEmpty() ? null : LocalDate.ofEpochDay(byDay.firstKey());
+    }
+
+    LocalDate lastDate() {
+        return byDay.isEmpty() ? null : LocalDate.ofEpochDay(byDay.lastKey());
+    }
+}
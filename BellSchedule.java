@@ -0,0 +1,287 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.*;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/*
+ * Bell schedules loaded from a file. Each named schedule is a sorted interval
+ * index (start/end seconds of day), so finding the period at a given time is a
+ * binary search. Which schedule applies on a date comes from weekday rules,
+ * overridden by single dates or date ranges (minimum days, rallies, finals).
+ *
+ * File format; blank lines and "#" comments are ignored:
+ *
+ *   [regular]                     starts a schedule
+ *   1 08:45-09:42                 period name and [start, end) time
+ *   days regular TUE WED THU FRI  use a schedule on these weekdays
+ *   date 2026-10-21 minimum       use a schedule on one date
+ *   dates 2026-12-14..2026-12-18 finals
+ *   date 2026-11-27 none          no school; "none" is always defined
+ */
+class BellSchedule {
+
+    static final String NO_SCHOOL = "none";
+
+    private static final String DEFAULT_SCHEDULE =
+            "[monday]\n" +
+            "1 09:20-10:10\n" +
+            "2 10:16-11:06\n" +
+            "3 11:12-12:02\n" +
+            "4 12:08-12:58\n" +
+            "5 13:40-14:39\n" +
+            "6 14:45-15:35\n" +
+            "[regular]\n" +
+            "1 08:45-09:42\n" +
+            "2 09:48-10:45\n" +
+            "3 10:51-11:48\n" +
+            "4 11:54-12:51\n" +
+            "5 13:33-14:30\n" +
+            "6 14:36-15:33\n" +
+            "days monday MON\n" +
+            "days regular TUE WED THU FRI\n";
+
+    // One day's periods, sorted by start and non-overlapping
+    static final class DaySchedule {
+        final String name;
+        private final int[] starts;
+        private final int[] ends;
+        private final String[] periods;
+
+        DaySchedule(String name, int[] starts, int[] ends, String[] periods) {
+            this.name = name;
+            this.starts = starts;
+            this.ends = ends;
+            this.periods = periods;
+        }
+
+        // Index of the last period starting at or before second, or -1
+        private int floor(int second) {
+            int low = 0;
+            int high = starts.length - 1;
+            int found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (starts[mid] <= second) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return found;
+        }
+
+        String periodAt(int second) {
+            int i = floor(second);
+            return i >= 0 && second < ends[i] ? periods[i] : "";
+        }
+
+        // Next second of day, after the given one, at which a period starts or ends; -1 if none
+        int nextBoundary(int second) {
+            int i = floor(second);
+            if (i >= 0 && second < ends[i]) {
+                return ends[i];
+            }
+            return i + 1 < starts.length ? starts[i + 1] : -1;
+        }
+
+        int firstStart() {
+            return starts.length > 0 ? starts[0] : -1;
+        }
+    }
+
+    private final Map<String, DaySchedule> schedules;
+    private final Map<DayOfWeek, DaySchedule> weekdays;
+    private final Map<LocalDate, DaySchedule> dates;
+
+    private BellSchedule(Map<String, DaySchedule> schedules, Map<DayOfWeek, DaySchedule> weekdays,
+            Map<LocalDate, DaySchedule> dates) {
+        this.schedules = schedules;
+        this.weekdays = weekdays;
+        this.dates = dates;
+    }
+
+    /* ================= LOOKUP ================= */
+    DaySchedule scheduleFor(LocalDate date) {
+        DaySchedule schedule = dates.get(date);
+        if (schedule == null) {
+            schedule = weekdays.get(date.getDayOfWeek());
+        }
+        return schedule != null ? schedule : schedules.get(NO_SCHOOL);
+    }
+
+    // Period name at the given time, or "" outside any period.
+    String periodAt(LocalDate date, LocalTime time) {
+        return scheduleFor(date).periodAt(time.toSecondOfDay());
+    }
+
+    // The next instant after from at which periodAt changes, looking up to
+    // two weeks ahead; null if no period starts in that time.
+    LocalDateTime nextBoundary(LocalDateTime from) {
+        int second = from.toLocalTime().toSecondOfDay();
+        int boundary = scheduleFor(from.toLocalDate()).nextBoundary(second);
+        if (boundary >= 0) {
+            return from.toLocalDate().atStartOfDay().plusSeconds(boundary);
+        }
+        for (int day = 1; day <= 14; day++) {
+            LocalDate date = from.toLocalDate().plusDays(day);
+            int start = scheduleFor(date).firstStart();
+            if (start >= 0) {
+                return date.atStartOfDay().plusSeconds(start);
+            }
+        }
+        return null;
+    }
+
+    /* ================= LOADING ================= */
+    static BellSchedule defaultSchedule() {
+        try {
+            return parse(new StringReader(DEFAULT_SCHEDULE));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static BellSchedule load(File file) throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    static BellSchedule parse(Reader reader) throws IOException {
+        BufferedReader br = new BufferedReader(reader);
+        Map<String, List<String[]>> periodLines = new LinkedHashMap<>();
+        List<String[]> rules = new ArrayList<>();
+        List<Integer> ruleLines = new ArrayList<>();
+        String current = null;
+        String line;
+        int lineNumber = 0;
+
+        while ((line = br.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (line.startsWith("[") && line.endsWith("]")) {
+                current = line.substring(1, line.length() - 1).trim();
+                if (current.isEmpty() || current.equals(NO_SCHOOL) || periodLines.containsKey(current)) {
+                    throw new IOException("Bad or duplicate schedule name on line " + lineNumber);
+                }
+                periodLines.put(current, new ArrayList<>());
+                continue;
+            }
+
+            String[] parts = line.split("\\s+");
+            if (parts[0].equals("days") || parts[0].equals("date") || parts[0].equals("dates")) {
+                rules.add(parts);
+                ruleLines.add(lineNumber);
+            } else if (current == null || parts.length != 2) {
+                throw new IOException("Expected a period line \"<name> HH:MM-HH:MM\" on line " + lineNumber);
+            } else {
+                periodLines.get(current).add(new String[] {parts[0], parts[1], Integer.toString(lineNumber)});
+            }
+        }
+
+        Map<String, DaySchedule> schedules = new HashMap<>();
+        schedules.put(NO_SCHOOL, new DaySchedule(NO_SCHOOL, new int[0], new int[0], new String[0]));
+        for (Map.Entry<String, List<String[]>> entry : periodLines.entrySet()) {
+            schedules.put(entry.getKey(), buildDay(entry.getKey(), entry.getValue()));
+        }
+
+        Map<DayOfWeek, DaySchedule> weekdays = new EnumMap<>(DayOfWeek.class);
+        Map<LocalDate, DaySchedule> dates = new HashMap<>();
+        for (int i = 0; i < rules.size(); i++) {
+            applyRule(rules.get(i), ruleLines.get(i), schedules, weekdays, dates);
+        }
+        return new BellSchedule(schedules, weekdays, dates);
+    }
+
+    private static DaySchedule buildDay(String name, List<String[]> lines) throws IOException {
+        int count = lines.size();
+        Integer[] order = new Integer[count];
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        for (int i = 0; i < count; i++) {
+            String[] period = lines.get(i);
+            String[] range = period[1].split("-");
+            try {
+                if (range.length != 2) {
+                    throw new DateTimeParseException("Bad range", period[1], 0);
+                }
+                starts[i] = LocalTime.parse(range[0]).toSecondOfDay();
+                ends[i] = LocalTime.parse(range[1]).toSecondOfDay();
+            } catch (DateTimeParseException e) {
+                throw new IOException("Bad time range " + period[1] + " on line " + period[2]);
+            }
+            if (ends[i] <= starts[i]) {
+                throw new IOException("Period ends before it starts on line " + period[2]);
+            }
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingInt(i -> starts[i]));
+
+        int[] sortedStarts = new int[count];
+        int[] sortedEnds = new int[count];
+        String[] periods = new String[count];
+        for (int i = 0; i < count; i++) {
+            sortedStarts[i] = starts[order[i]];
+            sortedEnds[i] = ends[order[i]];
+            periods[i] = lines.get(order[i])[0];
+            if (i > 0 && sortedStarts[i] < sortedEnds[i - 1]) {
+                throw new IOException("Overlapping periods in schedule " + name + " on line " + lines.get(order[i])[2]);
+            }
+        }
+        return new DaySchedule(name, sortedStarts, sortedEnds, periods);
+    }
+
+    private static void applyRule(String[] rule, int lineNumber, Map<String, DaySchedule> schedules,
+            Map<DayOfWeek, DaySchedule> weekdays, Map<LocalDate, DaySchedule> dates) throws IOException {
+        try {
+            if (rule[0].equals("days") && rule.length >= 3) {
+                DaySchedule schedule = named(schedules, rule[1], lineNumber);
+                for (int i = 2; i < rule.length; i++) {
+                    weekdays.put(parseDay(rule[i], lineNumber), schedule);
+                }
+            } else if (rule[0].equals("date") && rule.length == 3) {
+                dates.put(LocalDate.parse(rule[1]), named(schedules, rule[2], lineNumber));
+            } else if (rule[0].equals("dates") && rule.length == 3) {
+                String[] range = rule[1].split("\\.\\.");
+                if (range.length != 2) {
+                    throw new IOException("Expected FROM..TO dates on line " + lineNumber);
+                }
+                LocalDate from = LocalDate.parse(range[0]);
+                LocalDate to = LocalDate.parse(range[1]);
+                if (to.isBefore(from) || from.plusDays(366).isBefore(to)) {
+                    throw new IOException("Bad date range on line " + lineNumber);
+                }
+                DaySchedule schedule = named(schedules, rule[2], lineNumber);
+                for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                    dates.put(date, schedule);
+                }
+            } else {
+                throw new IOException("Bad " + rule[0] + " rule on line " + lineNumber);
+            }
+        } catch (DateTimeParseException e) {
+            throw new IOException("Bad date on line " + lineNumber);
+        }
+    }
+
+    private static DaySchedule named(Map<String, DaySchedule> schedules, String name, int lineNumber) throws IOException {
+        DaySchedule schedule = schedules.get(name);
+        if (schedule == null) {
+            throw new IOException("Unknown schedule " + name + " on line " + lineNumber);
+        }
+        return schedule;
+    }
+
+    private static DayOfWeek parseDay(String value, int lineNumber) throws IOException {
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (day.name().startsWith(value.toUpperCase(Locale.ROOT)) && value.length() >= 3) {
+                return day;
+            }
+        }
+        throw new IOException("Unknown weekday " + value + " on line " + lineNumber);
+    }
+}
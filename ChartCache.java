@@ -0,0 +1,162 @@
+import java.io.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/*
+ * In-memory cache of parsed period charts keyed by period tag ("P1".."P6"),
+ * least recently used first out. Entries remember the chart and journal
+ * file stamps they were read from, so a chart changed on disk since (an
+ * autosave, a manual save, a co-teacher's edit) is read again rather than
+ * served stale.
+ *
+ * Reads go through the ChartIo thread; prefetch() warms an entry in the
+ * background so switching to that period later completes immediately.
+ */
+class ChartCache {
+
+    // A period chart as read from disk: snapshot or CSV plus journal replay.
+    static class PeriodChart {
+        final File chartFile;
+        final ChartSnapshot snapshot;
+        final int replayedEdits;
+        final LocalDate savedOn;
+
+        PeriodChart(File chartFile, ChartSnapshot snapshot, int replayedEdits, LocalDate savedOn) {
+            this.chartFile = chartFile;
+            this.snapshot = snapshot;
+            this.replayedEdits = replayedEdits;
+            this.savedOn = savedOn;
+        }
+
+        // Clears tardy marks saved before the given day; returns whether any were
+        boolean dropStaleTardy(LocalDate day) {
+            return snapshot != null && ChartCache.dropStaleTardy(snapshot.getChart(), savedOn, day);
+        }
+    }
+
+    private static class Entry {
+        final PeriodChart chart;
+        final long stamp;
+
+        Entry(PeriodChart chart, long stamp) {
+            this.chart = chart;
+            this.stamp = stamp;
+        }
+    }
+
+    private final ChartIo io;
+    private final RoomLayout layout;
+    private final Function<String, File> chartFileForTag;
+    private final Map<String, Entry> entries;
+
+    ChartCache(int capacity, ChartIo io, RoomLayout layout, Function<String, File> chartFileForTag) {
+        this.io = io;
+        this.layout = layout;
+        this.chartFileForTag = chartFileForTag;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    CompletableFuture<PeriodChart> load(String tag) {
+        return io.submit(() -> {
+            File chartFile = chartFileForTag.apply(tag);
+            long stamp = stampOf(chartFile);
+            synchronized (entries) {
+                Entry entry = entries.get(tag);
+                if (entry != null && entry.stamp == stamp) {
+                    return entry.chart;
+                }
+            }
+
+            PeriodChart chart = readPeriodChart(chartFile, layout);
+            synchronized (entries) {
+                entries.put(tag, new Entry(chart, stamp));
+            }
+            return chart;
+        });
+    }
+
+    void prefetch(String tag) {
+        load(tag).exceptionally(error -> {
+            error.printStackTrace();
+            return null;
+        });
+    }
+
+    void invalidate(String tag) {
+        synchronized (entries) {
+            entries.remove(tag);
+        }
+    }
+
+    private static long stampOf(File chartFile) {
+        File journalFile = SeatJournal.journalFileFor(chartFile);
+        return chartFile.lastModified() * 31 + journalFile.length();
+    }
+
+    // "P3" for "P3_seats.csv", or null for any other name
+    static String periodTagOf(String fileName) {
+        if (!fileName.startsWith("P") || !fileName.endsWith("_seats.csv")) {
+            return null;
+        }
+        String tag = fileName.substring(0, fileName.length() - "_seats.csv".length());
+        return tag.length() > 1 && tag.substring(1).chars().allMatch(Character::isDigit) ? tag : null;
+    }
+
+    /* ================= READING ================= */
+    // Prefers an up to date binary snapshot, falls back to the CSV, then
+    // replays any journaled edits made after the last save.
+    static PeriodChart readPeriodChart(File chartFile, RoomLayout layout) throws IOException {
+        ChartSnapshot snapshot = null;
+        File snapshotFile = ChartSnapshot.snapshotFileFor(chartFile);
+        if (ChartSnapshot.isUsable(snapshotFile, chartFile)) {
+            try {
+                snapshot = ChartSnapshot.read(snapshotFile, layout);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        if (snapshot == null && chartFile.exists()) {
+            snapshot = ChartSnapshot.of(ChartCodec.read(chartFile, layout));
+        }
+
+        ChartData chart = snapshot != null ? snapshot.getChart() : new ChartData(layout);
+        int replayed = SeatJournal.replay(chartFile, chart);
+        if (snapshot == null && replayed > 0) {
+            snapshot = ChartSnapshot.of(chart);
+        }
+        return new PeriodChart(chartFile, snapshot, replayed, savedOn(chartFile));
+    }
+
+    /* ================= TARDY ================= */
+    // A tardy mark only counts on the day it was made, so a chart last written
+    // on an earlier day comes back with none.
+    static boolean dropStaleTardy(ChartData chart, LocalDate savedOn, LocalDate day) {
+        if (savedOn == null || !savedOn.isBefore(day)) {
+            return false;
+        }
+        boolean dropped = false;
+        for (int seat = 0; seat < chart.seatCount(); seat++) {
+            if (chart.isTardy(seat)) {
+                chart.setTardy(seat, false);
+                dropped = true;
+            }
+        }
+        return dropped;
+    }
+
+    // Local date of the latest write to the chart, its snapshot or its journal
+    static LocalDate savedOn(File chartFile) {
+        long modified = Math.max(chartFile.lastModified(), Math.max(
+                ChartSnapshot.snapshotFileFor(chartFile).lastModified(), SeatJournal.journalFileFor(chartFile).lastModified()));
+        return modified == 0 ? null : LocalDate.ofInstant(Instant.ofEpochMilli(modified), ZoneId.systemDefault());
+    }
+}
@@ -0,0 +1,295 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/*
+ * Reads and writes P<n>_seats.csv charts.
+ *
+ * Version 2 files start with a "#seatchart,2" line followed by the header
+ * "Seat,Enabled,Tardy,Name", with RFC 4180 quoting and rows in layout order.
+ * Version 1 files (the original "Seat,Enabled,Name" format) are still read;
+ * they were never quoted, so everything after the second comma is the name.
+ *
+ * The reader is a single pass state machine over a char buffer; fields are
+ * collected in one reused StringBuilder rather than split into arrays.
+ */
+class ChartCodec {
+
+    static final int VERSION = 2;
+    private static final String VERSION_TAG = "#seatchart";
+    private static final String HEADER = "Seat,Enabled,Tardy,Name";
+
+    private ChartCodec() {
+    }
+
+    /* ================= WRITING ================= */
+    // Written beside the file, synced and moved into place, so a crash or a
+    // full disk part way through leaves the previous chart intact. Returns
+    // the CRC32 of the bytes written.
+    static long write(File file, ChartData chart) throws IOException {
+        Path target = file.toPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try {
+            try (FileOutputStream stream = new FileOutputStream(temp.toFile())) {
+                write(new OutputStreamWriter(new CheckedOutputStream(stream, crc), StandardCharsets.UTF_8), chart);
+                stream.getFD().sync();
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return crc.getValue();
+    }
+
+    static void write(Writer out, ChartData chart) throws IOException {
+        BufferedWriter writer = new BufferedWriter(out, 1 << 16);
+        writer.write(VERSION_TAG);
+        writer.write(',');
+        writer.write(Integer.toString(VERSION));
+        writer.write("\r\n");
+        writer.write(HEADER);
+        writer.write("\r\n");
+
+        RoomLayout layout = chart.getLayout();
+        for (int seat = 0; seat < chart.seatCount(); seat++) {
+            writeField(writer, layout.seatId(seat));
+            writer.write(chart.isDisabled(seat) ? ",false," : ",true,");
+            writer.write(chart.isTardy(seat) ? "true," : "false,");
+            String name = chart.getName(seat);
+            if (name != null) {
+                writeField(writer, name);
+            }
+            writer.write("\r\n");
+        }
+        writer.flush();
+    }
+
+    // Writes value as a CSV field, quoted only when it has to be
+    static void writeField(Writer writer, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    /* ================= READING ================= */
+    static ChartData read(File file, RoomLayout layout) throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            return read(reader, layout);
+        }
+    }
+
+    static ChartData read(Reader reader, RoomLayout layout) throws IOException {
+        return new Parser(reader, layout).parse();
+    }
+
+    private static final class Parser {
+
+        private final Reader reader;
+        private final RoomLayout layout;
+        private final ChartData chart;
+
+        private final char[] buffer = new char[1 << 16];
+        private int position = 0;
+        private int limit = 0;
+
+        private final StringBuilder field = new StringBuilder();
+        private int version = 1;
+        private boolean versionLine;
+        private int line = 0;
+
+        // Current record
+        private int fieldIndex;
+        private int seat;
+        private boolean enabled;
+        private boolean tardy;
+        private String name;
+
+        Parser(Reader reader, RoomLayout layout) {
+            this.reader = reader;
+            this.layout = layout;
+            this.chart = new ChartData(layout);
+        }
+
+        ChartData parse() throws IOException {
+            // Either the version line or, for version 1, the header
+            if (!readRecord(true)) {
+                return chart;
+            }
+            if (versionLine && fieldIndex < 2) {
+                throw new ChartFormatException("Missing chart version on line " + line);
+            }
+            if (versionLine && !readRecord(true)) {
+                return chart;
+            }
+
+            while (readRecord(false)) {
+                if (fieldIndex >= 3 && seat >= 0) {
+                    chart.setDisabled(seat, !enabled);
+                    chart.setTardy(seat, version > 1 && tardy);
+                    chart.setName(seat, name);
+                }
+            }
+            return chart;
+        }
+
+        private int read() throws IOException {
+            if (position == limit) {
+                limit = reader.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buffer[position++];
+        }
+
+        // Reads one record into the current record fields; header records are
+        // only inspected for the version tag. Returns false at end of input.
+        private boolean readRecord(boolean header) throws IOException {
+            fieldIndex = 0;
+            seat = -1;
+            enabled = true;
+            tardy = false;
+            name = null;
+            field.setLength(0);
+            line++;
+
+            int c = read();
+            if (c == -1) {
+                return false;
+            }
+
+            boolean quoted = false;
+            boolean sawQuote = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new ChartFormatException("Unterminated quoted field on line " + line);
+                    }
+                    if (c == '"') {
+                        c = read();
+                        if (c == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            continue;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == -1 || c == '\n') {
+                    endField(header);
+                    return true;
+                } else if (c == '\r') {
+                    // dropped; the following \n ends the record
+                } else if (c == ',' && !(version == 1 && fieldIndex >= 2)) {
+                    endField(header);
+                    sawQuote = false;
+                } else if (c == '"' && version > 1 && field.length() == 0 && !sawQuote) {
+                    quoted = true;
+                    sawQuote = true;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+        }
+
+        private void endField(boolean header) throws IOException {
+            if (header) {
+                if (line == 1 && fieldIndex == 0) {
+                    versionLine = contentEquals(VERSION_TAG);
+                } else if (versionLine && line == 1 && fieldIndex == 1) {
+                    version = parseVersion();
+                }
+            } else {
+                int nameField = version > 1 ? 3 : 2;
+                if (fieldIndex == 0) {
+                    seat = layout.indexOf(field.toString().trim());
+                } else if (fieldIndex == 1) {
+                    enabled = isTrue();
+                } else if (fieldIndex == 2 && version > 1) {
+                    tardy = isTrue();
+                } else if (fieldIndex == nameField) {
+                    name = field.toString();
+                }
+            }
+
+            fieldIndex++;
+            field.setLength(0);
+        }
+
+        private int parseVersion() throws IOException {
+            int value = 0;
+            for (int i = 0; i < field.length(); i++) {
+                char c = field.charAt(i);
+                if (c < '0' || c > '9') {
+                    throw new ChartFormatException("Bad chart version on line " + line);
+                }
+                value = value * 10 + (c - '0');
+            }
+            if (value < 1 || value > VERSION) {
+                throw new ChartFormatException("Unsupported chart version " + value);
+            }
+            return value;
+        }
+
+        private boolean contentEquals(String value) {
+            if (field.length() != value.length()) {
+                return false;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                if (field.charAt(i) != value.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // Boolean.parseBoolean on the trimmed field, without allocating
+        private boolean isTrue() {
+            return trimmedEqualsIgnoreCase("true");
+        }
+
+        private boolean trimmedEqualsIgnoreCase(String value) {
+            int start = 0;
+            int end = field.length();
+            while (start < end && field.charAt(start) <= ' ') start++;
+            while (end > start && field.charAt(end - 1) <= ' ') end--;
+            if (end - start != value.length()) {
+                return false;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                if (Character.toLowerCase(field.charAt(start + i)) != value.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
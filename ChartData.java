@@ -0,0 +1,77 @@
+import java.util.BitSet;
+import java.util.random.RandomGenerator;
+
+/*
+ * One seating chart's state, indexed by RoomLayout seat id. This is what the
+ * chart files are read into and written from; it never touches Swing, so it
+ * can be built and parsed off the EDT.
+ */
+class ChartData {
+
+    private final RoomLayout layout;
+    private final String[] names;
+    private final BitSet disabled;
+    private final BitSet tardy;
+
+    ChartData(RoomLayout layout) {
+        this.layout = layout;
+        names = new String[layout.seatCount()];
+        disabled = new BitSet(layout.seatCount());
+        tardy = new BitSet(layout.seatCount());
+    }
+
+    RoomLayout getLayout() {
+        return layout;
+    }
+
+    int seatCount() {
+        return names.length;
+    }
+
+    // Student name in the seat, or null for an empty seat.
+    String getName(int seat) {
+        return names[seat];
+    }
+
+    void setName(int seat, String name) {
+        names[seat] = (name == null || name.trim().isEmpty()) ? null : name.trim();
+    }
+
+    boolean isDisabled(int seat) {
+        return disabled.get(seat);
+    }
+
+    void setDisabled(int seat, boolean value) {
+        disabled.set(seat, value);
+    }
+
+    boolean isTardy(int seat) {
+        return tardy.get(seat);
+    }
+
+    void setTardy(int seat, boolean value) {
+        tardy.set(seat, value);
+    }
+
+    // Shuffles every seated name into the first seats in layout order; the
+    // remaining seats are left empty and disabled, and tardies are cleared.
+    void randomize(RandomGenerator random) {
+        int count = 0;
+        for (int seat = 0; seat < names.length; seat++) {
+            if (names[seat] != null) {
+                names[count++] = names[seat];
+            }
+        }
+        for (int i = count - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            String name = names[i];
+            names[i] = names[j];
+            names[j] = name;
+        }
+        java.util.Arrays.fill(names, count, names.length, null);
+
+        disabled.clear();
+        disabled.set(count, names.length);
+        tardy.clear();
+    }
+}
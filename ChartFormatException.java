@@ -0,0 +1,19 @@
+import java.io.IOException;
+
+/*
+ * A chart, snapshot or journal file that was read but isn't in a format this
+ * version understands: damaged, cut short or written by something else. Other
+ * IOExceptions mean the file couldn't be read at all (locked by a sync
+ * client, a network drive gone) and are worth retrying.
+ */
+class ChartFormatException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    ChartFormatException(String message) {
+        super(message);
+    }
+
+    ChartFormatException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,107 @@
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/*
+ * Undo and redo for chart edits, over ChartStates that share unchanged
+ * seats. There is no step limit; instead each step is charged the bytes its
+ * edit added, and once the history passes its budget the oldest undo steps
+ * are dropped. An 8 MB budget holds tens of thousands of one-seat edits in
+ * a 1,000-seat room.
+ *
+ * Used on the EDT only.
+ */
+class ChartHistory {
+
+    static final long DEFAULT_BUDGET_BYTES = 8L << 20;
+
+    private static final class Step {
+        final String label;
+        final ChartState state;
+        final long bytes;
+
+        Step(String label, ChartState state, long bytes) {
+            this.label = label;
+            this.state = state;
+            this.bytes = bytes;
+        }
+    }
+
+    private final long budgetBytes;
+    private final Deque<Step> undo = new ArrayDeque<>();
+    private final Deque<Step> redo = new ArrayDeque<>();
+    private ChartState current;
+    private long bytes;
+
+    ChartHistory(ChartState initial, long budgetBytes) {
+        this.current = initial;
+        this.budgetBytes = budgetBytes;
+    }
+
+    ChartState current() {
+        return current;
+    }
+
+    // Starts over from state, e.g. after switching periods
+    void reset(ChartState state) {
+        undo.clear();
+        redo.clear();
+        bytes = 0;
+        current = state;
+    }
+
+    // Makes the edited state current as one undoable step. An edit that
+    // changed nothing isn't recorded.
+    void commit(String label, ChartState.Editor edit) {
+        if (!edit.hasChanges()) {
+            return;
+        }
+        for (Step step : redo) {
+            bytes -= step.bytes;
+        }
+        redo.clear();
+
+        long added = edit.addedBytes();
+        undo.push(new Step(label, current, added));
+        bytes += added;
+        current = edit.build();
+        while (bytes > budgetBytes && undo.size() > 1) {
+            bytes -= undo.removeLast().bytes;
+        }
+    }
+
+    // Steps back and returns the state to show, or null if there's nothing to undo
+    ChartState undo() {
+        return move(undo, redo);
+    }
+
+    ChartState redo() {
+        return move(redo, undo);
+    }
+
+    private ChartState move(Deque<Step> from, Deque<Step> to) {
+        Step step = from.poll();
+        if (step == null) {
+            return null;
+        }
+        to.push(new Step(step.label, current, step.bytes));
+        current = step.state;
+        return current;
+    }
+
+    // Label of the step undo() or redo() would take, or null
+    String undoLabel() {
+        return undo.isEmpty() ? null : undo.peek().label;
+    }
+
+    String redoLabel() {
+        return redo.isEmpty() ? null : redo.peek().label;
+    }
+
+    int undoCount() {
+        return undo.size();
+    }
+
+    long retainedBytes() {
+        return bytes;
+    }
+}
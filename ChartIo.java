@@ -0,0 +1,154 @@
+import java.io.*;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/*
+ * Background executor for chart and attendance file I/O, so a slow or busy
+ * synced Documents folder never blocks the EDT. All work runs on one thread,
+ * which keeps reads ordered after earlier writes to the same file.
+ *
+ * Chart and name history writes are coalesced per file: while a write is
+ * queued, later saves only replace it, so the queued write always lands the
+ * newest state. Journal compactions write through the same queue. Concurrent
+ * reads of the same file share one in-flight result.
+ *
+ * Because a coalesced write lands in the queue slot of the write it replaced,
+ * a read queued between the two can still see the newer state. Saves are
+ * numbered per file so a reader can tell which one the file holds.
+ */
+class ChartIo {
+
+    interface IoTask<T> {
+        T run() throws IOException;
+    }
+
+    interface FileWrite {
+        void writeTo(File file) throws IOException;
+    }
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "chart-io");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final class PendingWrite {
+        final FileWrite write;
+        final CompletableFuture<Void> written;
+        final long sequence;
+
+        PendingWrite(FileWrite write, CompletableFuture<Void> written, long sequence) {
+            this.write = write;
+            this.written = written;
+            this.sequence = sequence;
+        }
+    }
+
+    private final Map<File, PendingWrite> pendingWrites = new ConcurrentHashMap<>();
+    private final Map<File, CompletableFuture<ChartData>> pendingReads = new ConcurrentHashMap<>();
+    private final Map<File, Long> queuedWrites = new ConcurrentHashMap<>();
+    private final Map<File, Long> landedWrites = new ConcurrentHashMap<>();
+
+    ChartIo() {
+        // Give queued writes a chance to land when the window is closed
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "chart-io-flush"));
+    }
+
+    <T> CompletableFuture<T> submit(IoTask<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        executor.execute(() -> complete(result, task));
+        return result;
+    }
+
+    private static <T> void complete(CompletableFuture<T> result, IoTask<T> task) {
+        try {
+            result.complete(task.run());
+        } catch (Throwable t) {
+            result.completeExceptionally(t);
+        }
+    }
+
+    // Queues a whole-file write; while one is queued for the file, a newer
+    // write just replaces it. Completes once this write, or a newer one, has
+    // landed.
+    CompletableFuture<Void> saveLatest(File file, FileWrite write) {
+        boolean[] queued = {false};
+        PendingWrite pendingWrite = pendingWrites.compute(file, (key, pending) -> {
+            long sequence = queuedWrites.merge(file, 1L, Long::sum);
+            if (pending != null) {
+                return new PendingWrite(write, pending.written, sequence);
+            }
+            queued[0] = true;
+            return new PendingWrite(write, new CompletableFuture<>(), sequence);
+        });
+        if (queued[0]) {
+            executor.execute(() -> {
+                PendingWrite latest = pendingWrites.remove(file);
+                complete(latest.written, () -> {
+                    latest.write.writeTo(file);
+                    landedWrites.put(file, latest.sequence);
+                    return null;
+                });
+            });
+        }
+        return pendingWrite.written;
+    }
+
+    // Number of the latest save queued for the file, 0 if none
+    long queuedWrites(File file) {
+        return queuedWrites.getOrDefault(file, 0L);
+    }
+
+    // Number of the latest save written to the file, 0 if none. Only stable
+    // on the I/O thread, i.e. inside a submitted task.
+    long landedWrites(File file) {
+        return landedWrites.getOrDefault(file, 0L);
+    }
+
+    /* ================= CHARTS ================= */
+    CompletableFuture<Void> saveChart(File file, ChartSnapshot snapshot) {
+        return saveLatest(file, target -> writeChart(target, snapshot));
+    }
+
+    // Throws if the CSV couldn't be written, so callers never act as if it was
+    static void writeChart(File file, ChartSnapshot snapshot) throws IOException {
+        long start = System.nanoTime();
+        long checksum = ChartCodec.write(file, snapshot.getChart());
+
+        try {
+            snapshot.write(ChartSnapshot.snapshotFileFor(file), checksum);
+        } catch (IOException e) {
+            // The CSV is authoritative; a missing snapshot only slows the next start
+            e.printStackTrace();
+        }
+        PickerMetrics.CHART_WRITE.recordSince(start);
+    }
+
+    CompletableFuture<ChartData> loadChart(File file, RoomLayout layout) {
+        CompletableFuture<ChartData> read = new CompletableFuture<>();
+        CompletableFuture<ChartData> inFlight = pendingReads.putIfAbsent(file, read);
+        if (inFlight != null) {
+            return inFlight;
+        }
+
+        executor.execute(() -> complete(read, () -> {
+            // Later callers start a fresh read once this one has the file contents
+            try {
+                return ChartCodec.read(file, layout);
+            } finally {
+                pendingReads.remove(file, read);
+            }
+        }));
+        return read;
+    }
+
+    /* ================= SHUTDOWN ================= */
+    void shutdown() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
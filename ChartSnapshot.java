@@ -0,0 +1,231 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+/*
+ * Binary snapshot of the full chart state (labels, disabled, tardy and the
+ * draw pool cursor), written next to P<n>_seats.csv as P<n>_seats.bin. It is
+ * read into a heap buffer in one go so startup doesn't have to parse the
+ * CSV, and nothing is left mapped to keep the file from being replaced. The
+ * CSV stays the interchange format; a snapshot is ignored unless it was
+ * written together with the CSV as it is now (by checksum, since sync
+ * clients keep the remote file's timestamp) and for the same room layout.
+ *
+ * Layout (big endian):
+ *   int magic, short version, long CSV checksum, long layout fingerprint,
+ *   int seat count,
+ *   int word count + long[] disabled, int word count + long[] tardy,
+ *   int pool size, int cursor, int[] pool,
+ *   per seat: int UTF-8 length (-1 for an empty seat) + bytes
+ */
+class ChartSnapshot {
+
+    private static final int MAGIC = 0x52535053; // "RSPS"
+    private static final short VERSION = 2;
+
+    private final ChartData chart;
+    private final int[] pool;
+    private final int poolSize;
+    private final int cursor;
+
+    ChartSnapshot(ChartData chart, int[] pool, int poolSize, int cursor) {
+        this.chart = chart;
+        this.pool = pool;
+        this.poolSize = poolSize;
+        this.cursor = cursor;
+    }
+
+    // A chart without a saved draw cycle, e.g. one read from CSV.
+    static ChartSnapshot of(ChartData chart) {
+        return new ChartSnapshot(chart, null, 0, 0);
+    }
+
+    static ChartSnapshot capture(ChartData chart, SeatDrawEngine engine) {
+        int[] pool = new int[engine.seatCount()];
+        int size = engine.copyPool(pool);
+        return new ChartSnapshot(chart, pool, size, engine.cursor());
+    }
+
+    ChartData getChart() {
+        return chart;
+    }
+
+    void restorePool(SeatDrawEngine engine) {
+        if (pool != null) {
+            engine.restorePool(pool, poolSize, cursor);
+        }
+    }
+
+    static File snapshotFileFor(File chartFile) {
+        String name = chartFile.getName();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return new File(chartFile.getParentFile(), base + ".bin");
+    }
+
+    // A snapshot is only trusted when its CSV hasn't changed since it was written.
+    static boolean isUsable(File snapshotFile, File chartFile) {
+        if (!snapshotFile.isFile()) {
+            return false;
+        }
+        if (!chartFile.exists()) {
+            return true;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(snapshotFile))) {
+            return in.readInt() == MAGIC && in.readShort() == VERSION && in.readLong() == checksumOf(chartFile);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    static long checksumOf(File file) throws IOException {
+        try (CheckedInputStream in = new CheckedInputStream(new FileInputStream(file), new CRC32())) {
+            byte[] chunk = new byte[8192];
+            while (in.read(chunk) >= 0) {
+                // checksummed as it goes
+            }
+            return in.getChecksum().getValue();
+        }
+    }
+
+    /* ================= WRITING ================= */
+    // csvChecksum is the CRC32 of the CSV this snapshot goes with
+    void write(File file, long csvChecksum) throws IOException {
+        RoomLayout layout = chart.getLayout();
+        int seats = chart.seatCount();
+
+        byte[][] names = new byte[seats][];
+        int size = 4 + 2 + 8 + 8 + 4;
+        BitSet disabled = new BitSet(seats);
+        BitSet tardy = new BitSet(seats);
+        for (int seat = 0; seat < seats; seat++) {
+            disabled.set(seat, chart.isDisabled(seat));
+            tardy.set(seat, chart.isTardy(seat));
+            String name = chart.getName(seat);
+            names[seat] = name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+            size += 4 + (name == null ? 0 : names[seat].length);
+        }
+        long[] disabledWords = disabled.toLongArray();
+        long[] tardyWords = tardy.toLongArray();
+        int savedPool = pool == null ? 0 : poolSize;
+        size += 4 + disabledWords.length * 8 + 4 + tardyWords.length * 8 + 8 + savedPool * 4;
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putShort(VERSION).putLong(csvChecksum).putLong(layout.fingerprint()).putInt(seats);
+        putWords(buffer, disabledWords);
+        putWords(buffer, tardyWords);
+        buffer.putInt(savedPool).putInt(cursor);
+        for (int i = 0; i < savedPool; i++) {
+            buffer.putInt(pool[i]);
+        }
+        for (byte[] name : names) {
+            if (name == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(name.length).put(name);
+            }
+        }
+        buffer.flip();
+
+        // Write beside the target, flush it to disk and move it into place so
+        // a reader never sees a half-written snapshot.
+        Path target = file.toPath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void putWords(ByteBuffer buffer, long[] words) {
+        buffer.putInt(words.length);
+        for (long word : words) {
+            buffer.putLong(word);
+        }
+    }
+
+    /* ================= READING ================= */
+    static ChartSnapshot read(File file, RoomLayout layout) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new ChartFormatException("Chart snapshot too large " + file);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // read until full or the file ends early
+            }
+            buffer.flip();
+            return read(buffer, layout);
+        } catch (RuntimeException e) {
+            // BufferUnderflowException, IllegalArgumentException etc. from a damaged file
+            throw new ChartFormatException("Corrupt chart snapshot " + file, e);
+        }
+    }
+
+    private static ChartSnapshot read(ByteBuffer buffer, RoomLayout layout) throws IOException {
+        if (buffer.getInt() != MAGIC) {
+            throw new ChartFormatException("Not a chart snapshot");
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new ChartFormatException("Unsupported chart snapshot version " + version);
+        }
+        buffer.getLong(); // CSV checksum, checked by isUsable
+        if (buffer.getLong() != layout.fingerprint() || buffer.getInt() != layout.seatCount()) {
+            throw new ChartFormatException("Chart snapshot was written for a different room layout");
+        }
+
+        int seats = layout.seatCount();
+        BitSet disabled = BitSet.valueOf(getWords(buffer));
+        BitSet tardy = BitSet.valueOf(getWords(buffer));
+
+        int poolSize = buffer.getInt();
+        int cursor = buffer.getInt();
+        if (poolSize < 0 || poolSize > seats) {
+            throw new ChartFormatException("Bad pool size " + poolSize);
+        }
+        int[] pool = new int[seats];
+        for (int i = 0; i < poolSize; i++) {
+            pool[i] = buffer.getInt();
+        }
+
+        ChartData chart = new ChartData(layout);
+        for (int seat = 0; seat < seats; seat++) {
+            chart.setDisabled(seat, disabled.get(seat));
+            chart.setTardy(seat, tardy.get(seat));
+            int length = buffer.getInt();
+            if (length >= 0) {
+                byte[] name = new byte[length];
+                buffer.get(name);
+                chart.setName(seat, new String(name, StandardCharsets.UTF_8));
+            }
+        }
+        return new ChartSnapshot(chart, pool, poolSize, cursor);
+    }
+
+    private static long[] getWords(ByteBuffer buffer) throws IOException {
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / 8) {
+            throw new ChartFormatException("Bad bitset length " + count);
+        }
+        long[] words = new long[count];
+        for (int i = 0; i < count; i++) {
+            words[i] = buffer.getLong();
+        }
+        return words;
+    }
+}
@@ -0,0 +1,146 @@
+import java.util.BitSet;
+
+/*
+ * Immutable seat state (name, disabled, tardy per seat) for the undo
+ * history. Seats are stored in leaves of 32 behind a leaf table; an edit
+ * copies only the leaves it touches plus the table, so successive states
+ * share every other leaf and a one-seat edit costs a few hundred bytes
+ * however big the room is.
+ */
+final class ChartState {
+
+    private static final int LEAF_SHIFT = 5;
+    private static final int LEAF_SIZE = 1 << LEAF_SHIFT;
+    private static final int LEAF_MASK = LEAF_SIZE - 1;
+
+    // Rough heap sizes with compressed references, for the history's budget
+    static final long LEAF_BYTES = 16 + 8 + 16 + 4L * LEAF_SIZE;
+    private static final long TABLE_BYTES_PER_LEAF = 4;
+    // The state, its table header and the history step that holds it
+    private static final long STATE_BYTES = 64;
+
+    // Only written by the Editor that copied it, before the state is built
+    private static final class Leaf {
+        final String[] names;
+        int disabled;
+        int tardy;
+
+        Leaf(String[] names, int disabled, int tardy) {
+            this.names = names;
+            this.disabled = disabled;
+            this.tardy = tardy;
+        }
+
+        Leaf copy() {
+            return new Leaf(names.clone(), disabled, tardy);
+        }
+    }
+
+    private final int seatCount;
+    private final Leaf[] leaves;
+
+    private ChartState(int seatCount, Leaf[] leaves) {
+        this.seatCount = seatCount;
+        this.leaves = leaves;
+    }
+
+    // Every seat empty and enabled; all leaves are one shared leaf
+    static ChartState empty(int seatCount) {
+        Leaf[] leaves = new Leaf[(seatCount + LEAF_MASK) >>> LEAF_SHIFT];
+        java.util.Arrays.fill(leaves, new Leaf(new String[LEAF_SIZE], 0, 0));
+        return new ChartState(seatCount, leaves);
+    }
+
+    static ChartState of(ChartData chart) {
+        Editor edit = empty(chart.seatCount()).edit();
+        for (int seat = 0; seat < chart.seatCount(); seat++) {
+            edit.set(seat, chart.getName(seat), chart.isDisabled(seat), chart.isTardy(seat));
+        }
+        return edit.build();
+    }
+
+    int seatCount() {
+        return seatCount;
+    }
+
+    String getName(int seat) {
+        return leaves[seat >>> LEAF_SHIFT].names[seat & LEAF_MASK];
+    }
+
+    boolean isDisabled(int seat) {
+        return (leaves[seat >>> LEAF_SHIFT].disabled & 1 << (seat & LEAF_MASK)) != 0;
+    }
+
+    boolean isTardy(int seat) {
+        return (leaves[seat >>> LEAF_SHIFT].tardy & 1 << (seat & LEAF_MASK)) != 0;
+    }
+
+    Editor edit() {
+        return new Editor();
+    }
+
+    // Sets the seats that differ between a and b; leaves the two share are
+    // skipped without looking inside.
+    static void diff(ChartState a, ChartState b, BitSet out) {
+        for (int leaf = 0; leaf < a.leaves.length; leaf++) {
+            Leaf first = a.leaves[leaf];
+            Leaf second = b.leaves[leaf];
+            if (first == second) {
+                continue;
+            }
+            int base = leaf << LEAF_SHIFT;
+            int end = Math.min(LEAF_SIZE, a.seatCount - base);
+            for (int i = 0; i < end; i++) {
+                if (!java.util.Objects.equals(first.names[i], second.names[i])
+                        || ((first.disabled ^ second.disabled) & 1 << i) != 0
+                        || ((first.tardy ^ second.tardy) & 1 << i) != 0) {
+                    out.set(base + i);
+                }
+            }
+        }
+    }
+
+    /* ================= EDITING ================= */
+    // Builds the next state from this one. Each leaf is copied at most once,
+    // on the first seat in it that actually changes.
+    final class Editor {
+        private Leaf[] edited;
+        private final BitSet copied = new BitSet();
+
+        void set(int seat, String name, boolean disabled, boolean tardy) {
+            int index = seat >>> LEAF_SHIFT;
+            int offset = seat & LEAF_MASK;
+            int bit = 1 << offset;
+            Leaf leaf = (edited != null ? edited : leaves)[index];
+            if (java.util.Objects.equals(leaf.names[offset], name)
+                    && ((leaf.disabled & bit) != 0) == disabled && ((leaf.tardy & bit) != 0) == tardy) {
+                return;
+            }
+
+            if (edited == null) {
+                edited = leaves.clone();
+            }
+            if (!copied.get(index)) {
+                leaf = leaf.copy();
+                edited[index] = leaf;
+                copied.set(index);
+            }
+            leaf.names[offset] = name;
+            leaf.disabled = disabled ? leaf.disabled | bit : leaf.disabled & ~bit;
+            leaf.tardy = tardy ? leaf.tardy | bit : leaf.tardy & ~bit;
+        }
+
+        boolean hasChanges() {
+            return !copied.isEmpty();
+        }
+
+        // Approximate bytes the new state adds on top of the one it came from
+        long addedBytes() {
+            return hasChanges() ? copied.cardinality() * LEAF_BYTES + STATE_BYTES + TABLE_BYTES_PER_LEAF * leaves.length : 0;
+        }
+
+        ChartState build() {
+            return hasChanges() ? new ChartState(seatCount, edited) : ChartState.this;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Predicate;
+
+/*
+ * Watches the charts directory for files changed by something else, such
+ * as a co-teacher's edit arriving through OneDrive. Sync clients write in
+ * bursts (temp file, rename, several modifies), so a file is only reported
+ * once it has been quiet for the debounce delay and its size and timestamp
+ * have stopped changing.
+ *
+ * The app's own saves are reported too; listeners tell them apart by
+ * content. The listener is called on the watcher's scheduler thread.
+ */
+class ChartWatcher {
+
+    interface Listener {
+        void chartChanged(File chartFile);
+    }
+
+    private final Path directory;
+    private final long debounceMillis;
+    private final Predicate<String> watchedName;
+    private final Listener listener;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "chart-watcher-debounce");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // A scheduled quiet-period check; compared by identity
+    private static final class Pending {
+        ScheduledFuture<?> future;
+    }
+
+    private final Map<Path, Pending> pending = new ConcurrentHashMap<>();
+    private WatchService watchService;
+
+    ChartWatcher(File directory, long debounceMillis, Predicate<String> watchedName, Listener listener) {
+        this.directory = directory.toPath();
+        this.debounceMillis = debounceMillis;
+        this.watchedName = watchedName;
+        this.listener = listener;
+    }
+
+    void start() throws IOException {
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread thread = new Thread(this::watch, "chart-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void stop() {
+        try {
+            if (watchService != null) {
+                watchService.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        scheduler.shutdownNow();
+    }
+
+    private void watch() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // Events were dropped; check every watched file
+                        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                            for (Path file : files) {
+                                changed(file);
+                            }
+                        }
+                    } else {
+                        changed(directory.resolve((Path) event.context()));
+                    }
+                }
+                if (!key.reset()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void changed(Path file) {
+        if (!watchedName.test(file.getFileName().toString())) {
+            return;
+        }
+        schedule(file, stampOf(file));
+    }
+
+    // Restarts the file's quiet period; a newer event replaces the pending check
+    private void schedule(Path file, long stamp) {
+        Pending check = new Pending();
+        check.future = scheduler.schedule(() -> settle(file, stamp, check), debounceMillis, TimeUnit.MILLISECONDS);
+        Pending previous = pending.put(file, check);
+        if (previous != null) {
+            previous.future.cancel(false);
+        }
+    }
+
+    private void settle(Path file, long stamp, Pending check) {
+        long now = stampOf(file);
+        if (now != stamp) {
+            // Still being written without new events (some sync clients); wait again
+            schedule(file, now);
+            return;
+        }
+        // A newer event may have scheduled another check; that one reports
+        if (!pending.remove(file, check)) {
+            return;
+        }
+        if (Files.isRegularFile(file)) {
+            listener.chartChanged(file.toFile());
+        }
+    }
+
+    private static long stampOf(Path file) {
+        File f = file.toFile();
+        return f.lastModified() * 31 + f.length();
+    }
+}
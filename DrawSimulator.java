@@ -0,0 +1,408 @@
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/*
+ * Headless Monte-Carlo check that the seat and name draw cycles are fair.
+ * Millions of draws are split across cores with fork/join; every fork splits
+ * its SplittableRandom, so each chunk has an independent stream and a seed
+ * gives the same report however the chunks are scheduled.
+ *
+ *   java DrawSimulator                                  seats and names, defaults
+ *   java DrawSimulator seats 20000000 --toggle 40 --swap 150
+ *   java DrawSimulator names 5000000 --names 32 --fair
+ *   java DrawSimulator seats --reset-on-toggle          old initSeats-on-toggle behaviour
+ *
+ * Seat runs start each chunk from a full room and, on a script, toggle a
+ * random seat (absences are capped at a quarter of the room) every --toggle
+ * draws and swap two enabled students every --swap draws, the way the seat
+ * manager does. Expected counts follow each seat's and student's time
+ * enabled: every draw adds 1/(enabled seats) to everyone enabled.
+ *
+ * The report gives chi-square against the expected counts, its p-value, the
+ * spread of observed/expected, and cycle violations: a student drawn a third
+ * time while someone enabled the whole while wasn't drawn once, which a
+ * cycle never allows. --table also prints every seat and student.
+ *
+ * The chi-square null is independent draws. Cycles spread draws far more
+ * evenly than that, so a statistic well under its degrees of freedom (p near
+ * 1) is what a fair cycle looks like; a small p means some seat or student
+ * is drawn more than their time enabled warrants.
+ */
+class DrawSimulator {
+
+    private static final long DEFAULT_DRAWS = 10_000_000;
+    private static final int DEFAULT_NAMES = 30;
+    private static final long CHUNK_DRAWS = 250_000;
+
+    private final RoomLayout layout;
+    private final int toggleEvery;
+    private final int swapEvery;
+    private final boolean resetOnToggle;
+    private final int nameCount;
+    private final boolean fairDraw;
+
+    private DrawSimulator(RoomLayout layout, int toggleEvery, int swapEvery, boolean resetOnToggle,
+                          int nameCount, boolean fairDraw) {
+        this.layout = layout;
+        this.toggleEvery = toggleEvery;
+        this.swapEvery = swapEvery;
+        this.resetOnToggle = resetOnToggle;
+        this.nameCount = nameCount;
+        this.fairDraw = fairDraw;
+    }
+
+    private static final String USAGE =
+            "usage: DrawSimulator [seats | names | all] [draws] [--layout file] [--seed hex]\n" +
+            "                     [--toggle n] [--swap n] [--reset-on-toggle] [--names n] [--fair] [--table]";
+
+    public static void main(String[] args) throws IOException {
+        String mode = "all";
+        long draws = DEFAULT_DRAWS;
+        Map<String, String> options = new HashMap<>();
+        Set<String> flags = new HashSet<>();
+        SeatRandom seatRandom;
+        int toggleEvery;
+        int swapEvery;
+        int nameCount;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("--fair") || arg.equals("--reset-on-toggle") || arg.equals("--table")) {
+                    flags.add(arg.substring(2));
+                } else if (arg.matches("--(layout|seed|toggle|swap|names)") && i + 1 < args.length) {
+                    options.put(arg.substring(2), args[++i]);
+                } else if (arg.matches("\\d+")) {
+                    draws = arg.length() <= 18 ? Long.parseLong(arg) : 0;
+                    if (draws < 1) {
+                        throw new IllegalArgumentException("bad draw count " + arg);
+                    }
+                } else if (arg.matches("seats|names|all")) {
+                    mode = arg;
+                } else {
+                    throw new IllegalArgumentException("unknown argument " + arg);
+                }
+            }
+            try {
+                seatRandom = options.containsKey("seed")
+                        ? new SeatRandom(SeatRandom.parseSeed(options.get("seed"))) : SeatRandom.fromSystemProperty();
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("bad seed " + options.getOrDefault("seed", ""));
+            }
+            // 0 turns toggling or swapping off
+            toggleEvery = intOption(options, "toggle", 50, 0);
+            swapEvery = intOption(options, "swap", 200, 0);
+            nameCount = intOption(options, "names", DEFAULT_NAMES, 1);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        RoomLayout layout = options.containsKey("layout")
+                ? RoomLayout.load(new File(options.get("layout"))) : RoomLayout.defaultLayout();
+        DrawSimulator simulator = new DrawSimulator(layout, toggleEvery, swapEvery, flags.contains("reset-on-toggle"),
+                nameCount, flags.contains("fair"));
+
+        System.out.printf(Locale.ROOT, "seed %s, %d draws, %d cores%n",
+                SeatRandom.formatSeed(seatRandom.getSessionSeed()), draws, ForkJoinPool.commonPool().getParallelism());
+        if (mode.equals("all") || mode.equals("seats")) {
+            simulator.report("Seats", simulator.simulate(draws, seatRandom.streamFor("simulate", "seats"), true),
+                    flags.contains("table"));
+        }
+        if (mode.equals("all") || mode.equals("names")) {
+            simulator.report(simulator.fairDraw ? "Names (fair draw)" : "Names",
+                    simulator.simulate(draws, seatRandom.streamFor("simulate", "names"), false), flags.contains("table"));
+        }
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue, int min) {
+        String value = options.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        int parsed;
+        try {
+            parsed = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bad --" + name + " " + value);
+        }
+        if (parsed < min) {
+            throw new IllegalArgumentException("--" + name + " must be at least " + min);
+        }
+        return parsed;
+    }
+
+    /* ================= RESULTS ================= */
+    private static final class Tally {
+        // Per seat (seats only) and per student
+        final long[] seatDraws;
+        final double[] seatExpected;
+        final long[] studentDraws;
+        final double[] studentExpected;
+        long draws;
+        long violations;
+        long nanos;
+
+        Tally(int seats, int students) {
+            seatDraws = new long[seats];
+            seatExpected = new double[seats];
+            studentDraws = new long[students];
+            studentExpected = new double[students];
+        }
+
+        Tally merge(Tally other) {
+            for (int i = 0; i < seatDraws.length; i++) {
+                seatDraws[i] += other.seatDraws[i];
+                seatExpected[i] += other.seatExpected[i];
+            }
+            for (int i = 0; i < studentDraws.length; i++) {
+                studentDraws[i] += other.studentDraws[i];
+                studentExpected[i] += other.studentExpected[i];
+            }
+            draws += other.draws;
+            violations += other.violations;
+            return this;
+        }
+    }
+
+    private Tally simulate(long draws, SplittableRandom random, boolean seats) {
+        long start = System.nanoTime();
+        Tally tally = ForkJoinPool.commonPool().invoke(new Chunk(draws, random, seats));
+        tally.nanos = System.nanoTime() - start;
+        return tally;
+    }
+
+    @SuppressWarnings("serial") // Never serialized
+    private final class Chunk extends RecursiveTask<Tally> {
+        private final long draws;
+        private final SplittableRandom random;
+        private final boolean seats;
+
+        Chunk(long draws, SplittableRandom random, boolean seats) {
+            this.draws = draws;
+            this.random = random;
+            this.seats = seats;
+        }
+
+        protected Tally compute() {
+            if (draws <= CHUNK_DRAWS) {
+                return seats ? runSeats(draws, random) : runNames(draws, random);
+            }
+            // Split before forking so the streams don't depend on scheduling
+            Chunk left = new Chunk(draws / 2, random.split(), seats);
+            Chunk right = new Chunk(draws - draws / 2, random, seats);
+            left.fork();
+            Tally tally = right.compute();
+            return tally.merge(left.join());
+        }
+    }
+
+    /* ================= SEAT CYCLE ================= */
+    private Tally runSeats(long draws, SplittableRandom random) {
+        int seatCount = layout.seatCount();
+        int maxAbsent = Math.max(1, seatCount / 4);
+        Tally tally = new Tally(seatCount, seatCount);
+        SeatDrawEngine engine = new SeatDrawEngine(layout, random.split());
+        CycleCheck check = new CycleCheck(seatCount);
+
+        // Students start in the seat with their number and move on swaps
+        int[] studentAt = new int[seatCount];
+        for (int seat = 0; seat < seatCount; seat++) {
+            studentAt[seat] = seat;
+        }
+
+        // Running sum of 1/(enabled seats) per draw; a seat or student's
+        // expected count is the sum over the draws it was enabled for
+        double harmonic = 0;
+        double[] seatEnabledAt = new double[seatCount];
+        double[] studentEnabledAt = new double[seatCount];
+        int absent = 0;
+
+        for (long t = 0; t < draws; t++) {
+            if (toggleEvery > 0 && t > 0 && t % toggleEvery == 0) {
+                int seat = random.nextInt(seatCount);
+                int student = studentAt[seat];
+                boolean disable = !engine.isDisabled(seat);
+                if (disable && absent == maxAbsent) {
+                    // At the cap, bring someone back instead
+                    disable = false;
+                    for (int i = 0; i < seatCount && !engine.isDisabled(seat); i++) {
+                        seat = (seat + 1) % seatCount;
+                    }
+                    student = studentAt[seat];
+                }
+                if (disable) {
+                    tally.seatExpected[seat] += harmonic - seatEnabledAt[seat];
+                    tally.studentExpected[student] += harmonic - studentEnabledAt[student];
+                    absent++;
+                } else {
+                    seatEnabledAt[seat] = harmonic;
+                    studentEnabledAt[student] = harmonic;
+                    absent--;
+                }
+                engine.setDisabled(seat, disable);
+                check.setEnabled(student, !disable, t);
+                if (resetOnToggle) {
+                    engine.reset();
+                }
+            }
+            if (swapEvery > 0 && t > 0 && t % swapEvery == 0) {
+                int a = random.nextInt(seatCount);
+                int b = random.nextInt(seatCount);
+                if (a != b && !engine.isDisabled(a) && !engine.isDisabled(b)) {
+                    engine.swapSeats(a, b);
+                    int studentA = studentAt[a];
+                    studentAt[a] = studentAt[b];
+                    studentAt[b] = studentA;
+                }
+            }
+
+            int seat = engine.next();
+            int student = studentAt[seat];
+            tally.seatDraws[seat]++;
+            tally.studentDraws[student]++;
+            harmonic += 1.0 / (seatCount - absent);
+            if (check.drawn(student, t)) {
+                tally.violations++;
+            }
+        }
+
+        for (int seat = 0; seat < seatCount; seat++) {
+            if (!engine.isDisabled(seat)) {
+                tally.seatExpected[seat] += harmonic - seatEnabledAt[seat];
+                tally.studentExpected[studentAt[seat]] += harmonic - studentEnabledAt[studentAt[seat]];
+            }
+        }
+        tally.draws = draws;
+        return tally;
+    }
+
+    /* ================= NAME CYCLE ================= */
+    private Tally runNames(long draws, SplittableRandom random) {
+        Tally tally = new Tally(0, nameCount);
+        NamePool pool = new NamePool(random.split());
+        Map<String, Integer> students = new HashMap<>();
+        java.util.List<String> roster = new ArrayList<>();
+        for (int student = 0; student < nameCount; student++) {
+            roster.add("Student " + student);
+            students.put(roster.get(student), student);
+        }
+        pool.setRoster(roster);
+        pool.setFairDraw(fairDraw);
+        CycleCheck check = new CycleCheck(nameCount);
+        for (int student = 0; student < nameCount; student++) {
+            check.setEnabled(student, true, 0);
+        }
+
+        for (long t = 0; t < draws; t++) {
+            int student = students.get(pool.next().name);
+            tally.studentDraws[student]++;
+            // Fair draw weights toward the least called, so it has no cycle to check
+            if (!fairDraw && check.drawn(student, t)) {
+                tally.violations++;
+            }
+        }
+        Arrays.fill(tally.studentExpected, (double) draws / nameCount);
+        tally.draws = draws;
+        return tally;
+    }
+
+    /* ================= CYCLE CHECK ================= */
+    // A student's draws fall in different cycles, so between their first and
+    // third draw a whole cycle passes and everyone enabled throughout must
+    // have been drawn.
+    private static final class CycleCheck {
+        private final long[] lastDraw;
+        private final long[] previousDraw;
+        private final long[] enabledSince;
+
+        CycleCheck(int students) {
+            lastDraw = new long[students];
+            previousDraw = new long[students];
+            enabledSince = new long[students];
+            Arrays.fill(lastDraw, -1);
+            Arrays.fill(previousDraw, -1);
+        }
+
+        void setEnabled(int student, boolean enabled, long t) {
+            enabledSince[student] = enabled ? t : Long.MAX_VALUE;
+        }
+
+        // Records the draw and returns true if it breaks the cycle
+        boolean drawn(int student, long t) {
+            long first = previousDraw[student];
+            previousDraw[student] = lastDraw[student];
+            lastDraw[student] = t;
+            if (first < 0) {
+                return false;
+            }
+            for (int other = 0; other < lastDraw.length; other++) {
+                if (other != student && enabledSince[other] <= first && lastDraw[other] < first) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /* ================= REPORT ================= */
+    private void report(String title, Tally tally, boolean table) {
+        System.out.printf(Locale.ROOT, "%n%s: %d draws in %.1f s (%.1f M draws/s), cycle violations %d%n", title,
+                tally.draws, tally.nanos / 1e9, tally.draws / (tally.nanos / 1e3), tally.violations);
+        if (tally.seatDraws.length > 0) {
+            reportDistribution("per seat", tally.seatDraws, tally.seatExpected);
+        }
+        reportDistribution("per student", tally.studentDraws, tally.studentExpected);
+
+        if (table) {
+            for (int seat = 0; seat < tally.seatDraws.length; seat++) {
+                System.out.printf(Locale.ROOT, "  seat %-6s %10d %12.1f %7.4f%n", layout.seatId(seat),
+                        tally.seatDraws[seat], tally.seatExpected[seat], tally.seatDraws[seat] / tally.seatExpected[seat]);
+            }
+            for (int student = 0; student < tally.studentDraws.length; student++) {
+                System.out.printf(Locale.ROOT, "  student %-4d %10d %12.1f %7.4f%n", student, tally.studentDraws[student],
+                        tally.studentExpected[student], tally.studentDraws[student] / tally.studentExpected[student]);
+            }
+        }
+    }
+
+    private static void reportDistribution(String label, long[] observed, double[] expected) {
+        double chiSquare = 0;
+        double minRatio = Double.MAX_VALUE;
+        double maxRatio = 0;
+        int categories = 0;
+        for (int i = 0; i < observed.length; i++) {
+            if (expected[i] <= 0) {
+                continue;
+            }
+            double difference = observed[i] - expected[i];
+            chiSquare += difference * difference / expected[i];
+            minRatio = Math.min(minRatio, observed[i] / expected[i]);
+            maxRatio = Math.max(maxRatio, observed[i] / expected[i]);
+            categories++;
+        }
+        int freedom = Math.max(1, categories - 1);
+        System.out.printf(Locale.ROOT, "  %-12s chi-square %.1f on %d df, p = %.4f, observed/expected %.4f .. %.4f%n",
+                label, chiSquare, freedom, chiSquarePValue(chiSquare, freedom), minRatio, maxRatio);
+    }
+
+    // Upper tail of the chi-square distribution, Wilson-Hilferty approximation
+    static double chiSquarePValue(double chiSquare, int freedom) {
+        double variance = 2.0 / (9 * freedom);
+        double z = (Math.cbrt(chiSquare / freedom) - (1 - variance)) / Math.sqrt(variance);
+        return 0.5 * erfc(z / Math.sqrt(2));
+    }
+
+    // Abramowitz and Stegun 7.1.26, good to about 1e-7
+    private static double erfc(double x) {
+        if (x < 0) {
+            return 2 - erfc(-x);
+        }
+        double t = 1 / (1 + 0.3275911 * x);
+        double poly = t * (0.254829592 + t * (-0.284496736 + t * (1.421413741 + t * (-1.453152027 + t * 1.061405429))));
+        return poly * Math.exp(-x * x);
+    }
+}
@@ -0,0 +1,170 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Lock-free latency histogram with log-linear buckets: four buckets per power
+ * of two, so any reported percentile is within about 19% of the true value.
+ * Recording is a bucket lookup and a few atomic adds with no allocation, cheap
+ * enough to leave on around every draw and chart operation.
+ */
+class LatencyHistogram implements LatencyHistogramMXBean {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    // Largest value since the rolling log last read it
+    private final AtomicLong intervalMaxNanos = new AtomicLong();
+    // Counts when the rolling log last read them
+    private Snapshot intervalStart = new Snapshot();
+
+    LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /* ================= RECORDING ================= */
+    void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucketOf(nanos));
+        total.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        updateMax(maxNanos, nanos);
+        updateMax(intervalMaxNanos, nanos);
+    }
+
+    private static void updateMax(AtomicLong max, long nanos) {
+        long current = max.get();
+        while (nanos > current && !max.compareAndSet(current, nanos)) {
+            current = max.get();
+        }
+    }
+
+    static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) return (int) nanos;
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int sub = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    // Largest value that falls in the bucket
+    static long bucketUpperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + sub + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /* ================= READING ================= */
+    // Point-in-time copy of the bucket counts; subtracting an earlier one
+    // gives the distribution for the time in between.
+    static final class Snapshot {
+        final long[] counts = new long[BUCKETS];
+        long count;
+        long totalNanos;
+
+        Snapshot minus(Snapshot earlier) {
+            Snapshot interval = new Snapshot();
+            for (int i = 0; i < BUCKETS; i++) {
+                interval.counts[i] = counts[i] - earlier.counts[i];
+            }
+            interval.count = count - earlier.count;
+            interval.totalNanos = totalNanos - earlier.totalNanos;
+            return interval;
+        }
+
+        long percentileNanos(double percentile) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return bucketUpperBound(i);
+                }
+            }
+            return bucketUpperBound(BUCKETS - 1);
+        }
+
+        double meanNanos() {
+            return count == 0 ? 0 : (double) totalNanos / count;
+        }
+    }
+
+    Snapshot snapshot() {
+        Snapshot snapshot = new Snapshot();
+        // Read the totals first so concurrent records can only make the
+        // buckets run slightly ahead, never behind
+        snapshot.count = total.get();
+        snapshot.totalNanos = totalNanos.get();
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot.counts[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    // Distribution since the last call (or reset), for the rolling log
+    synchronized Snapshot takeInterval() {
+        Snapshot now = snapshot();
+        Snapshot interval = now.minus(intervalStart);
+        intervalStart = now;
+        return interval;
+    }
+
+    long takeIntervalMaxNanos() {
+        return intervalMaxNanos.getAndSet(0);
+    }
+
+    /* ================= JMX ================= */
+    public long getCount() {
+        return total.get();
+    }
+
+    public double getMeanMicros() {
+        return snapshot().meanNanos() / 1000;
+    }
+
+    public double getP50Micros() {
+        return snapshot().percentileNanos(50) / 1000.0;
+    }
+
+    public double getP90Micros() {
+        return snapshot().percentileNanos(90) / 1000.0;
+    }
+
+    public double getP99Micros() {
+        return snapshot().percentileNanos(99) / 1000.0;
+    }
+
+    public double getP999Micros() {
+        return snapshot().percentileNanos(99.9) / 1000.0;
+    }
+
+    public double getMaxMicros() {
+        return maxNanos.get() / 1000.0;
+    }
+
+    // Also restarts the log's interval, so it never sees negative counts
+    public synchronized void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+        intervalMaxNanos.set(0);
+        intervalStart = snapshot();
+    }
+}
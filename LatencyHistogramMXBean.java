@@ -0,0 +1,23 @@
+/*
+ * JMX view of a LatencyHistogram, registered as
+ * RandomSeatPicker:type=Latency,name=<histogram>. Times are in microseconds
+ * and cover everything since start or the last reset.
+ */
+public interface LatencyHistogramMXBean {
+
+    long getCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+
+    void reset();
+}
@@ -1,9 +1,7 @@
 import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
-import java.time.DayOfWeek;
 import java.time.LocalDate;
-import java.time.LocalTime;
 import java.util.*;
 import javax.swing.*;
 
@@ -16,28 +14,37 @@ public class Main {
     private static JButton randomSeatButton;
 
     // Seats
-    private static final java.util.List<String> seatPool = new ArrayList<>();
-    private static final Set<String> disabledSeats = new HashSet<>();
-    private static final Set<String> tardySeats = new HashSet<>();
-    private static int seatIndex = 0;
-    private static final String[] leftRows  = {"A","B","C","D","E"};
-    private static final String[] rightRows = {"F","G","H","I"};
+    private static final RoomLayout roomLayout = loadRoomLayout();
+    private static final SeatDrawEngine drawEngine = new SeatDrawEngine(roomLayout);
 
     private static final Color BASE_SEAT_COLOR = new Color(90, 90, 110);
     private static final Color TARDY_SEAT_COLOR = new Color(160, 60, 60);
     private static final Color DISABLED_SEAT_COLOR = new Color(65, 65, 80);
     private static final Color SWAP_SELECTED_COLOR = new Color(120, 120, 160);
 
-    // Names
-    private static final java.util.List<NameEntry> namePool = new ArrayList<>();
-    private static int nameIndex = 0;
+    // Session seed; every room / period stream derives from it (see SeatRandom)
+    private static final SeatRandom seatRandom = SeatRandom.fromSystemProperty();
+    private static final Map<String, SplittableRandom> periodStreams = new HashMap<>();
 
-    // Labels for seats (used by Seat Settings + Edit Chart)
-    private static final Map<String, String> seatLabels = new HashMap<>();
+    // Names, from roster.txt; call counts persist in name_history.txt
+    private static final NamePool namePool = new NamePool(seatRandom.streamFor("names"));
+
+    // Student names in seats (used by Seat Settings + Edit Chart)
+    private static final SeatStore seatStore = new SeatStore(roomLayout);
     private static final Map<String, JToggleButton> seatToggleButtons = new HashMap<>();
     private static final Map<String, JButton> seatEditButtons = new HashMap<>();
     private static final Map<String, JButton> seatSwapButtons = new HashMap<>();
     private static String swapSelectedSeat;
+    private static boolean refreshingSeatToggles;
+
+    // Seat widgets refresh from here, once per EDT event, only for changed seats
+    private static final SeatChangeBus seatChanges = new SeatChangeBus(roomLayout.seatCount());
+    private static final ChartHistory chartHistory =
+            new ChartHistory(ChartState.empty(roomLayout.seatCount()), ChartHistory.DEFAULT_BUDGET_BYTES);
+    // Seats changed since the last history step
+    private static final BitSet historyDirty = new BitSet(roomLayout.seatCount());
+    // The current period's chart as last read from or written to its file
+    private static ChartState periodFileState;
 
     // Combined Seat Manager window
     private static JFrame seatManagerFrame;
@@ -52,6 +59,30 @@ public class Main {
 
     private static SeatManagerMode seatManagerMode = SeatManagerMode.SETTINGS;
 
+    // Rooms above this size use one painted seat map instead of a button per seat
+    private static final int LARGE_ROOM_SEATS = 200;
+    private static SeatMapCanvas seatMapCanvas;
+    // Past this many changed seats one full repaint beats per-seat dirty rects
+    private static final int SEAT_MAP_REPAINT_ALL = 64;
+
+    private static final ChartIo chartIo = new ChartIo();
+    // Opened on first use; only touched on the chart I/O thread
+    private static AttendanceStore attendanceStore;
+
+    // Autosave journal for the current period's chart, set once auto-load finishes
+    private static SeatJournal seatJournal;
+    private static String currentPeriodTag;
+    private static final ChartCache chartCache = new ChartCache(4, chartIo, roomLayout, Main::getPeriodChartFile);
+
+    // Bell schedule from bell_schedule.txt, or the built-in Monday/daily bells
+    private static final BellSchedule bellSchedule = loadBellSchedule();
+    private static final PeriodScheduler periodScheduler =
+            new PeriodScheduler(bellSchedule, java.time.Duration.ofMinutes(4));
+    private static final int JOURNAL_FLUSH_MS = 2000;
+    private static final int JOURNAL_COMPACT_MS = 5 * 60 * 1000;
+    // Quiet time before a chart changed on disk is re-read
+    private static final long CHART_RELOAD_DEBOUNCE_MS = 750;
+
     public static void main(String[] args) {
         SwingUtilities.invokeLater(Main::createAndShowUi);
     }
@@ -74,10 +105,10 @@ public class Main {
         randomSeatButton = makeTxtButton("Pick Seat", new Color(72, 99, 255));
         JButton menuButton = makeTxtButton("Menu", new Color(120, 120, 120), new Dimension(160, 50), 16, false);
 
-        boolean loaded = autoLoadSeatingChart();
-        if (!loaded) {
-            initSeats();
-        }
+        PickerMetrics.start(new File(getPreferredDocumentsDir(), "picker_metrics.log"));
+        seatChanges.addListener(Main::refreshChangedSeats);
+        autoLoadSeatingChart();
+        loadNamePool();
 
         JPanel card = new JPanel();
         card.setBackground(new Color(45, 45, 60));
@@ -101,6 +132,7 @@ public class Main {
         card.add(menuButton);
 
         menuButton.addActionListener(e -> showMenu(menuButton));
+        bindUndoKeys(frame.getRootPane());
 
         frame.add(card);
         frame.setSize(460, 450);
@@ -112,6 +144,21 @@ public class Main {
                 updateFonts(frame.getWidth());
             }
         });
+        frame.addWindowListener(new WindowAdapter() {
+            public void windowClosing(WindowEvent e) {
+                recordAttendance();
+                flushJournal();
+            }
+        });
+
+        new javax.swing.Timer(JOURNAL_FLUSH_MS, e -> flushJournal()).start();
+        new javax.swing.Timer(JOURNAL_COMPACT_MS, e -> {
+            if (seatJournal != null && seatJournal.isDirty()) {
+                compactJournal();
+            }
+        }).start();
+        startPeriodScheduler();
+        startChartWatcher();
 
         frame.setVisible(true);
     }
@@ -119,6 +166,16 @@ public class Main {
     private static void showMenu(Component anchor) {
         JPopupMenu menu = new JPopupMenu();
 
+        String undoLabel = chartHistory.undoLabel();
+        JMenuItem undo = new JMenuItem(undoLabel != null ? "Undo " + undoLabel : "Undo");
+        undo.setEnabled(undoLabel != null);
+        undo.addActionListener(e -> undoEdit());
+
+        String redoLabel = chartHistory.redoLabel();
+        JMenuItem redo = new JMenuItem(redoLabel != null ? "Redo " + redoLabel : "Redo");
+        redo.setEnabled(redoLabel != null);
+        redo.addActionListener(e -> redoEdit());
+
         JMenuItem chart = new JMenuItem("Chart");
         chart.addActionListener(e -> openSeatManager(SeatManagerMode.SETTINGS));
 
@@ -128,9 +185,38 @@ public class Main {
         JMenuItem exportAttendance = new JMenuItem("Export Attendance");
         exportAttendance.addActionListener(e -> exportAttendance());
 
+        JMenuItem exportAllPeriods = new JMenuItem("Export All Periods");
+        exportAllPeriods.addActionListener(e -> exportAllPeriods());
+
+        JMenuItem pickSeveral = new JMenuItem("Pick Several");
+        pickSeveral.addActionListener(e -> pickSeveral());
+
+        JMenuItem formGroups = new JMenuItem("Form Groups");
+        formGroups.addActionListener(e -> formGroups());
+
+        JCheckBoxMenuItem fairDraw = new JCheckBoxMenuItem("Fair Draw", namePool.isFairDraw());
+        fairDraw.setEnabled(!namePool.isEmpty());
+        fairDraw.addActionListener(e -> namePool.setFairDraw(fairDraw.isSelected()));
+
+        JMenu switchPeriod = new JMenu("Switch Period");
+        for (int period = 1; period <= 6; period++) {
+            String periodTag = "P" + period;
+            JCheckBoxMenuItem item = new JCheckBoxMenuItem(periodTag, periodTag.equals(currentPeriodTag));
+            item.addActionListener(e -> switchToPeriod(periodTag));
+            switchPeriod.add(item);
+        }
+
+        menu.add(undo);
+        menu.add(redo);
+        menu.addSeparator();
         menu.add(chart);
         menu.add(swapSeats);
         menu.add(exportAttendance);
+        menu.add(exportAllPeriods);
+        menu.add(pickSeveral);
+        menu.add(formGroups);
+        menu.add(fairDraw);
+        menu.add(switchPeriod);
 
         menu.show(anchor, 0, anchor.getHeight());
     }
@@ -141,64 +227,135 @@ public class Main {
         String periodSuffix = getAttendancePeriodSuffix();
         String periodTag = periodSuffix.isEmpty() ? "P" : "P" + periodSuffix;
         chooser.setSelectedFile(new File("Attendence_" + date + "_" + periodTag + ".txt"));
+        Map<javax.swing.filechooser.FileFilter, AttendanceExporter> formats = new HashMap<>();
+        for (AttendanceExporter format : AttendanceExporter.formats().values()) {
+            javax.swing.filechooser.FileFilter filter =
+                    new javax.swing.filechooser.FileNameExtensionFilter(format.description(), format.extension());
+            formats.put(filter, format);
+            chooser.addChoosableFileFilter(filter);
+            if (formats.size() == 1) {
+                chooser.setFileFilter(filter);
+            }
+        }
+        chooser.setAcceptAllFileFilterUsed(false);
 
         if (chooser.showSaveDialog(null) != JFileChooser.APPROVE_OPTION) {
             return;
         }
 
-        File file = chooser.getSelectedFile();
-        ensureSeatLabels();
-
-        java.util.List<String> absentNames = new ArrayList<>();
-        java.util.List<String> tardyNames = new ArrayList<>();
-        java.util.List<String> presentNames = new ArrayList<>();
-
-        for (String seat : seatLabels.keySet()) {
-            String name = getSeatLabel(seat);
-            if (name == null || name.trim().isEmpty() || name.equals(seat)) {
-                continue;
+        AttendanceExporter exporter = formats.get(chooser.getFileFilter());
+        File file = withExtension(chooser.getSelectedFile(), exporter.extension());
+        long start = System.nanoTime();
+        ChartData chart = captureSeatingChart();
+        String period = periodTag;
+        recordAttendance();
+
+        onEdt(chartIo.submit(() -> {
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), java.nio.charset.StandardCharsets.UTF_8)) {
+                exporter.writeHeader(writer, false);
+                exporter.writePeriod(writer, LocalDate.parse(date), period, chart, 0, false);
+                exporter.writeFooter(writer, false);
             }
+            return null;
+        }), written -> PickerMetrics.ATTENDANCE_EXPORT.recordSince(start));
+    }
 
-            if (disabledSeats.contains(seat)) {
-                absentNames.add(name.trim());
-            } else if (tardySeats.contains(seat)) {
-                tardyNames.add(name.trim());
-            } else {
-                presentNames.add(name.trim());
-            }
+    // Swaps the chosen name's extension for the format's, so switching the
+    // format doesn't leave a .txt name on a CSV file
+    private static File withExtension(File file, String extension) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return new File(file.getParentFile(), base + "." + extension);
+    }
+
+    // Exports every period with a chart, one file each or one combined file.
+    // The current period is exported from what's on screen.
+    private static void exportAllPeriods() {
+        Map<String, AttendanceExporter> formats = new LinkedHashMap<>();
+        for (AttendanceExporter format : AttendanceExporter.formats().values()) {
+            formats.put(format.description(), format);
+        }
+        JComboBox<String> formatBox = new JComboBox<>(formats.keySet().toArray(new String[0]));
+        JCheckBox combinedBox = new JCheckBox("One combined file");
+        if (JOptionPane.showConfirmDialog(null, new Object[] {"Format:", formatBox, combinedBox},
+                "Export All Periods", JOptionPane.OK_CANCEL_OPTION) != JOptionPane.OK_OPTION) {
+            return;
         }
 
-        Collections.sort(absentNames);
-        Collections.sort(tardyNames);
-        Collections.sort(presentNames);
+        JFileChooser chooser = new JFileChooser(getPreferredDocumentsDir());
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        if (chooser.showSaveDialog(null) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
 
-        try (PrintWriter pw = new PrintWriter(new FileWriter(file))) {
-            pw.println("Absent:");
-            pw.println();
-            if (!absentNames.isEmpty()) {
-                pw.println(String.join(", ", absentNames));
-            } else {
-                pw.println("None");
-            }
-            pw.println();
-            pw.println("Tardy:");
-            pw.println();
-            if (!tardyNames.isEmpty()) {
-                pw.println(String.join(", ", tardyNames));
-            } else {
-                pw.println("None");
+        File outDir = chooser.getSelectedFile();
+        AttendanceExporter exporter = formats.get((String) formatBox.getSelectedItem());
+        boolean combined = combinedBox.isSelected();
+        String livePeriod = seatJournal != null ? currentPeriodTag : null;
+        ChartData liveChart = captureSeatingChart();
+        long start = System.nanoTime();
+        recordAttendance();
+        LocalDate today = LocalDate.now();
+
+        // On the I/O thread so no chart is read while it's being saved
+        onEdt(chartIo.submit(() -> {
+            java.util.List<String> periods = new ArrayList<>();
+            for (int period = 1; period <= 6; period++) {
+                String tag = "P" + period;
+                if (tag.equals(livePeriod) || getPeriodChartFile(tag).exists()) {
+                    periods.add(tag);
+                }
             }
-            pw.println();
-            pw.println("Present:");
-            pw.println();
-            if (!presentNames.isEmpty()) {
-                pw.println(String.join(", ", presentNames));
-            } else {
-                pw.println("None");
+            return AttendanceBatch.export(periods, period -> period.equals(livePeriod) ? liveChart
+                            : readExportChart(getPeriodChartFile(period), today),
+                    exporter, today, outDir, combined);
+        }), results -> {
+            PickerMetrics.ATTENDANCE_EXPORT.recordSince(start);
+            StringBuilder text = new StringBuilder();
+            for (AttendanceBatch.Result result : results) {
+                text.append(result.period).append(": ")
+                        .append(result.error == null ? result.file.getName() : "failed, " + result.error.getMessage())
+                        .append('\n');
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            showBatchResult("Exported", text.length() > 0 ? text.toString() : "No period charts found\n");
+        });
+    }
+
+    // A saved period chart as it stands on the given day
+    private static ChartData readExportChart(File chartFile, LocalDate day) throws IOException {
+        ChartCache.PeriodChart periodChart = ChartCache.readPeriodChart(chartFile, roomLayout);
+        periodChart.dropStaleTardy(day);
+        return periodChart.snapshot.getChart();
+    }
+
+    /* ================= ATTENDANCE HISTORY ================= */
+    // Appends the current period's attendance to attendance_history.log.
+    // Taken on export, when leaving a period and on close; the last take of
+    // the day for a period is the one that counts.
+    private static void recordAttendance() {
+        // No journal means the period's chart hasn't finished loading
+        if (currentPeriodTag == null || seatJournal == null) {
+            return;
+        }
+        AttendanceReport report = AttendanceReport.of(captureSeatingChart());
+        if (report.getAbsent().isEmpty() && report.getTardy().isEmpty() && report.getPresent().isEmpty()) {
+            return;
         }
+
+        String period = currentPeriodTag;
+        LocalDate date = LocalDate.now();
+        File historyFile = AttendanceStore.fileIn(getPreferredDocumentsDir());
+        chartIo.submit(() -> {
+            if (attendanceStore == null) {
+                attendanceStore = AttendanceStore.open(historyFile);
+            }
+            attendanceStore.record(date, period, report);
+            return null;
+        }).exceptionally(t -> {
+            t.printStackTrace();
+            return null;
+        });
     }
 
     private static File getPreferredDocumentsDir() {
@@ -210,100 +367,259 @@ public class Main {
         return new File(System.getProperty("user.home"), "Documents");
     }
 
-    private static boolean autoLoadSeatingChart() {
-        String periodSuffix = getAttendancePeriodSuffix();
-        if (periodSuffix.isEmpty()) {
-            return false;
+    private static RoomLayout loadRoomLayout() {
+        File layoutFile = new File(getPreferredDocumentsDir(), "room_layout.txt");
+        if (layoutFile.exists()) {
+            try {
+                return RoomLayout.load(layoutFile);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
+        return RoomLayout.defaultLayout();
+    }
 
-        String periodTag = "P" + periodSuffix;
-        File documentsDir = getPreferredDocumentsDir();
-        File chartFile = new File(documentsDir, periodTag + "_seats.csv");
-
-        if (!chartFile.exists()) {
-            return false;
+    // Shows the window right away and applies the period's chart once the
+    // background read finishes.
+    private static void autoLoadSeatingChart() {
+        String periodSuffix = getAttendancePeriodSuffix();
+        if (periodSuffix.isEmpty()) {
+            useSeatStream();
+            initSeats();
+            return;
         }
-
-        ensureSeatLabels();
-        loadSeatingChart(chartFile);
-        return true;
+        switchToPeriod("P" + periodSuffix);
     }
 
-    private static String getAttendancePeriodSuffix() {
-        LocalDate date = LocalDate.now();
-        LocalTime now = LocalTime.now();
-        DayOfWeek day = date.getDayOfWeek();
+    private static File getPeriodChartFile(String periodTag) {
+        return new File(getPreferredDocumentsDir(), periodTag + "_seats.csv");
+    }
 
-        if (day == DayOfWeek.MONDAY) {
-            return getMondayPeriod(now);
+    // Saves the current period's chart and applies another period's, served
+    // from the chart cache when it has already been read or prefetched.
+    private static void switchToPeriod(String periodTag) {
+        if (periodTag.equals(currentPeriodTag)) {
+            return;
         }
-
-        if (day == DayOfWeek.TUESDAY || day == DayOfWeek.WEDNESDAY
-                || day == DayOfWeek.THURSDAY || day == DayOfWeek.FRIDAY) {
-            return getDailyPeriod(now);
+        recordAttendance();
+        compactJournal();
+        if (currentPeriodTag != null) {
+            chartCache.invalidate(currentPeriodTag);
         }
+        seatJournal = null;
+        currentPeriodTag = periodTag;
 
-        return "";
+        loadPeriod(periodTag);
     }
 
-    private static String getMondayPeriod(LocalTime now) {
-        String period = findPeriod(now, LocalTime.of(9, 20), LocalTime.of(10, 10), "1");
-        if (period != null) return period;
+    private static void loadPeriod(String periodTag) {
+        setChartLoading(true);
+        onEdt(chartCache.load(periodTag), periodChart -> {
+            if (!periodTag.equals(currentPeriodTag)) {
+                return;
+            }
+            applyPeriodChart(periodChart);
+            setChartLoading(false);
+        }, error -> {
+            error.printStackTrace();
+            if (!periodTag.equals(currentPeriodTag)) {
+                return;
+            }
+            if (error instanceof ChartFormatException) {
+                setAsideChart(periodTag, error);
+            } else {
+                offerReload(periodTag, error);
+            }
+        });
+    }
 
-        period = findPeriod(now, LocalTime.of(10, 16), LocalTime.of(11, 6), "2");
-        if (period != null) return period;
+    // A damaged chart is moved out of the way of the next autosave and the
+    // period started empty, once the move is done. Until then nothing is
+    // journaled, so the files stay as they were.
+    private static void setAsideChart(String periodTag, Throwable error) {
+        File chartFile = getPeriodChartFile(periodTag);
+        onEdt(chartIo.submit(() -> setAsideChartFiles(chartFile)), renamed -> {
+            if (!periodTag.equals(currentPeriodTag)) {
+                return;
+            }
+            applyPeriodChart(new ChartCache.PeriodChart(chartFile, null, 0, null));
+            setChartLoading(false);
+            JOptionPane.showMessageDialog(null,
+                    "The " + periodTag + " chart couldn't be read: " + error.getMessage()
+                            + "\nIt was renamed to " + renamed + " and an empty chart opened.",
+                    "Chart Not Loaded", JOptionPane.WARNING_MESSAGE);
+        }, moveError -> {
+            moveError.printStackTrace();
+            if (periodTag.equals(currentPeriodTag)) {
+                offerReload(periodTag, moveError);
+            }
+        });
+    }
 
-        period = findPeriod(now, LocalTime.of(11, 12), LocalTime.of(12, 2), "3");
-        if (period != null) return period;
+    // The chart may be fine but out of reach for now (a sync client holding
+    // it, a network drive reconnecting), so its files are left alone. On
+    // Cancel no period is current and nothing is journaled; choosing the
+    // period again retries.
+    private static void offerReload(String periodTag, Throwable error) {
+        Object[] options = {"Retry", "Cancel"};
+        int choice = JOptionPane.showOptionDialog(null,
+                "The " + periodTag + " chart couldn't be read: " + error.getMessage(),
+                "Chart Not Loaded", JOptionPane.DEFAULT_OPTION, JOptionPane.WARNING_MESSAGE, null, options, options[0]);
+        if (choice == 0 && periodTag.equals(currentPeriodTag)) {
+            loadPeriod(periodTag);
+        } else if (periodTag.equals(currentPeriodTag)) {
+            currentPeriodTag = null;
+            resultLabel.setText(periodTag + " chart not loaded");
+        }
+    }
 
-        period = findPeriod(now, LocalTime.of(12, 8), LocalTime.of(12, 58), "4");
-        if (period != null) return period;
+    // Renames the chart, its snapshot and its journal to *.unreadable, so a
+    // stale snapshot isn't picked up in place of the missing CSV
+    // Renames the chart, snapshot and journal with the same timestamp suffix,
+    // never over an earlier set-aside copy. Returns the chart's new name.
+    private static String setAsideChartFiles(File chartFile) throws IOException {
+        File[] files = {chartFile, ChartSnapshot.snapshotFileFor(chartFile), SeatJournal.journalFileFor(chartFile)};
+        String stamp = ".unreadable-" + java.time.LocalDateTime.now()
+                .format(java.time.format.DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        String suffix = stamp;
+        for (int attempt = 2; isTaken(files, suffix); attempt++) {
+            suffix = stamp + "-" + attempt;
+        }
+        for (File file : files) {
+            if (file.exists()) {
+                java.nio.file.Path path = file.toPath();
+                java.nio.file.Files.move(path, path.resolveSibling(file.getName() + suffix));
+            }
+        }
+        return chartFile.getName() + suffix;
+    }
 
-        period = findPeriod(now, LocalTime.of(13, 40), LocalTime.of(14, 39), "5");
-        if (period != null) return period;
+    private static boolean isTaken(File[] files, String suffix) {
+        for (File file : files) {
+            if (new File(file.getParentFile(), file.getName() + suffix).exists()) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        period = findPeriod(now, LocalTime.of(14, 45), LocalTime.of(15, 35), "6");
-        if (period != null) return period;
+    private static void applyPeriodChart(ChartCache.PeriodChart periodChart) {
+        useSeatStream();
+        // Rewritten below so the file stops carrying yesterday's marks too
+        boolean droppedTardy = periodChart.dropStaleTardy(LocalDate.now());
+        if (periodChart.snapshot != null) {
+            applySeatingChart(periodChart.snapshot.getChart());
+            periodChart.snapshot.restorePool(drawEngine);
+            updateCounter();
+        } else {
+            clearSeatingChart();
+        }
 
-        return "";
+        seatJournal = new SeatJournal(periodChart.chartFile, chartIo);
+        if (periodChart.replayedEdits > 0 || droppedTardy) {
+            compactJournal();
+        }
+        resetHistory();
+        periodFileState = chartHistory.current();
     }
 
-    private static String getDailyPeriod(LocalTime now) {
-        String period = findPeriod(now, LocalTime.of(8, 45), LocalTime.of(9, 42), "1");
-        if (period != null) return period;
+    private static void setChartLoading(boolean loading) {
+        randomSeatButton.setEnabled(!loading);
+        resultLabel.setText(loading ? "Loading chart…" : "Click to pick a seat");
+    }
 
-        period = findPeriod(now, LocalTime.of(9, 48), LocalTime.of(10, 45), "2");
-        if (period != null) return period;
+    // Runs onSuccess on the EDT once an I/O task completes; failures are
+    // reported the same way the synchronous file code always has.
+    private static <T> void onEdt(java.util.concurrent.CompletableFuture<T> task, java.util.function.Consumer<T> onSuccess) {
+        onEdt(task, onSuccess, Throwable::printStackTrace);
+    }
 
-        period = findPeriod(now, LocalTime.of(10, 51), LocalTime.of(11, 48), "3");
-        if (period != null) return period;
+    // As above, but a failure goes to onFailure on the EDT, unwrapped from
+    // any CompletionException
+    private static <T> void onEdt(java.util.concurrent.CompletableFuture<T> task, java.util.function.Consumer<T> onSuccess,
+                                  java.util.function.Consumer<Throwable> onFailure) {
+        task.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            if (error instanceof java.util.concurrent.CompletionException && error.getCause() != null) {
+                onFailure.accept(error.getCause());
+            } else if (error != null) {
+                onFailure.accept(error);
+            } else {
+                onSuccess.accept(result);
+            }
+        }));
+    }
 
-        period = findPeriod(now, LocalTime.of(11, 54), LocalTime.of(12, 51), "4");
-        if (period != null) return period;
+    /* ================= AUTOSAVE JOURNAL ================= */
+    private static void journalSeat(String seat) {
+        if (seatJournal == null) {
+            return;
+        }
+        seatJournal.record(seat, drawEngine.isDisabled(seat), drawEngine.isTardy(seat),
+                seatStore.getName(roomLayout.indexOf(seat)));
+    }
 
-        period = findPeriod(now, LocalTime.of(13, 33), LocalTime.of(14, 30), "5");
-        if (period != null) return period;
+    private static void flushJournal() {
+        if (seatJournal == null) {
+            return;
+        }
+        if (seatJournal.needsCompaction()) {
+            compactJournal();
+        } else {
+            seatJournal.flush();
+        }
+    }
 
-        period = findPeriod(now, LocalTime.of(14, 36), LocalTime.of(15, 33), "6");
-        if (period != null) return period;
+    // Rewrites the period's chart from the live state and empties the journal.
+    private static void compactJournal() {
+        if (seatJournal != null) {
+            ChartData chart = captureSeatingChart();
+            periodFileState = ChartState.of(chart);
+            seatJournal.compact(ChartSnapshot.capture(chart, drawEngine));
+        }
+    }
 
-        return "";
+    private static String getAttendancePeriodSuffix() {
+        return periodScheduler.getCurrentPeriod();
     }
 
-    private static String findPeriod(LocalTime now, LocalTime start, LocalTime end, String period) {
-        if (!now.isBefore(start) && now.isBefore(end)) {
-            return period;
+    private static BellSchedule loadBellSchedule() {
+        File scheduleFile = new File(getPreferredDocumentsDir(), "bell_schedule.txt");
+        if (scheduleFile.exists()) {
+            try {
+                return BellSchedule.load(scheduleFile);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
-        return null;
+        return BellSchedule.defaultSchedule();
+    }
+
+    // Switches to each period's chart when its bell rings and warms the chart
+    // cache a few minutes before. Passing periods keep the last chart up.
+    private static void startPeriodScheduler() {
+        periodScheduler.addListener(new PeriodScheduler.Listener() {
+            public void periodChanged(String previous, String current) {
+                if (!current.isEmpty()) {
+                    SwingUtilities.invokeLater(() -> switchToPeriod("P" + current));
+                }
+            }
+
+            public void periodStartingSoon(String next) {
+                chartCache.prefetch("P" + next);
+            }
+        });
+        periodScheduler.start();
     }
 
     /* ================= SEAT MANAGER (COMBINED) ================= */
     private static void openSeatManager(SeatManagerMode mode) {
+        long start = System.nanoTime();
         if (seatManagerFrame == null) {
             seatManagerFrame = new JFrame();
             seatManagerFrame.setSize(700, 500);
             seatManagerFrame.setLocationRelativeTo(null);
             seatManagerFrame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+            bindUndoKeys(seatManagerFrame.getRootPane());
             seatManagerFrame.getContentPane().setBackground(new Color(30, 30, 40));
 
             JPanel panel = new JPanel(new BorderLayout());
@@ -314,8 +630,19 @@ public class Main {
             seatManagerTitle.setForeground(Color.WHITE);
             seatManagerTitle.setFont(new Font("SansSerif", Font.BOLD, 20));
 
-            seatManagerGridPanel = new JPanel(new BorderLayout());
-            seatManagerGridPanel.setBackground(new Color(45, 45, 60));
+            if (roomLayout.seatCount() > LARGE_ROOM_SEATS) {
+                seatManagerGridPanel = new JPanel(new BorderLayout());
+                seatManagerGridPanel.setBackground(new Color(45, 45, 60));
+                seatManagerGridPanel.add(createSeatMap(), BorderLayout.CENTER);
+            } else {
+                // All three grids are built once per window and kept in sync; a
+                // mode switch only flips the visible card.
+                seatManagerGridPanel = new JPanel(new CardLayout());
+                seatManagerGridPanel.setBackground(new Color(45, 45, 60));
+                seatManagerGridPanel.add(createSeatGrid(), SeatManagerMode.SETTINGS.name());
+                seatManagerGridPanel.add(createEditableSeatGrid(), SeatManagerMode.EDIT.name());
+                seatManagerGridPanel.add(createSwapSeatGrid(), SeatManagerMode.SWAP.name());
+            }
 
             JButton saveBtn = makeTxtButton("Save Chart", new Color(72, 99, 255), new Dimension(130, 38), 14, false);
             saveBtn.addActionListener(e -> {
@@ -378,12 +705,14 @@ public class Main {
             seatManagerFrame.addWindowListener(new WindowAdapter() {
                 public void windowClosed(WindowEvent e) {
                     seatManagerFrame = null;
+                    seatMapCanvas = null;
                 }
             });
         }
 
         setSeatManagerMode(mode);
         seatManagerFrame.setVisible(true);
+        PickerMetrics.SEAT_MANAGER_OPEN.recordSince(start);
     }
 
     private static String getSeatManagerTitle(SeatManagerMode mode) {
@@ -398,8 +727,9 @@ public class Main {
     }
 
     private static void setSeatManagerMode(SeatManagerMode mode) {
+        long start = System.nanoTime();
         seatManagerMode = mode;
-        swapSelectedSeat = null;
+        clearSwapSelection();
 
         String title = getSeatManagerTitle(mode);
         seatManagerFrame.setTitle(title);
@@ -419,77 +749,71 @@ public class Main {
             seatManagerSwapButton.setText("Swap Seats");
         }
 
-        seatManagerGridPanel.removeAll();
-        if (mode == SeatManagerMode.EDIT) {
-            seatManagerGridPanel.add(createEditableSeatGrid(), BorderLayout.CENTER);
-            refreshSeatEditorButtons();
-        } else if (mode == SeatManagerMode.SWAP) {
-            seatManagerGridPanel.add(createSwapSeatGrid(), BorderLayout.CENTER);
-            refreshSeatSwapButtons();
+        if (seatMapCanvas != null) {
+            seatMapCanvas.repaint();
         } else {
-            seatManagerGridPanel.add(createSeatGrid(), BorderLayout.CENTER);
-            refreshSeatSettingsToggles();
+            ((CardLayout) seatManagerGridPanel.getLayout()).show(seatManagerGridPanel, mode.name());
         }
-        seatManagerGridPanel.revalidate();
-        seatManagerGridPanel.repaint();
+        PickerMetrics.SEAT_MANAGER_MODE.recordSince(start);
     }
 
     /* ================= SEAT GRID ================= */
     private static JPanel createSeatGrid() {
-        ensureSeatLabels();
         seatToggleButtons.clear();
-
-        JPanel grid = new JPanel(new GridLayout(0, 9, 10, 10));
-        grid.setBackground(new Color(45, 45, 60));
-
-        for (int i = 0; i < leftRows.length; i++) {
-            for (int n = 4; n >= 1; n--) grid.add(createSeatToggle(leftRows[i] + n));
-            grid.add(new JLabel()); // aisle
-            if (i < rightRows.length) for (int n = 1; n <= 4; n++) grid.add(createSeatToggle(rightRows[i] + n));
-            else for (int n = 1; n <= 4; n++) grid.add(new JLabel());
-        }
-
-        return grid;
+        return createLayoutGrid(Main::createSeatToggle);
     }
 
     private static JPanel createEditableSeatGrid() {
-        ensureSeatLabels();
         seatEditButtons.clear();
+        return createLayoutGrid(Main::createEditableSeat);
+    }
 
-        JPanel grid = new JPanel(new GridLayout(leftRows.length, 9, 10, 10));
+    private static JPanel createSwapSeatGrid() {
+        seatSwapButtons.clear();
+        return createLayoutGrid(Main::createSwapSeat);
+    }
+
+    private static JPanel createLayoutGrid(java.util.function.Function<String, Component> seatFactory) {
+        JPanel grid = new JPanel(new GridLayout(roomLayout.rows(), roomLayout.columns(), 10, 10));
         grid.setBackground(new Color(45, 45, 60));
 
-        for (int i = 0; i < leftRows.length; i++) {
-            for (int n = 4; n >= 1; n--) addEditableSeat(grid, leftRows[i] + n);
-            grid.add(new JLabel());
-            if (i < rightRows.length) {
-                for (int n = 1; n <= 4; n++) addEditableSeat(grid, rightRows[i] + n);
-            } else {
-                for (int n = 1; n <= 4; n++) grid.add(new JLabel());
+        for (int r = 0; r < roomLayout.rows(); r++) {
+            for (int c = 0; c < roomLayout.columns(); c++) {
+                int seat = roomLayout.cellAt(r, c);
+                grid.add(seat >= 0 ? seatFactory.apply(roomLayout.seatId(seat)) : new JLabel()); // aisle / gap
             }
         }
 
         return grid;
     }
 
-    private static JPanel createSwapSeatGrid() {
-        ensureSeatLabels();
-        seatSwapButtons.clear();
-
-        JPanel grid = new JPanel(new GridLayout(leftRows.length, 9, 10, 10));
-        grid.setBackground(new Color(45, 45, 60));
+    private static JComponent createSeatMap() {
+        seatMapCanvas = new SeatMapCanvas(roomLayout, new SeatMapCanvas.SeatRenderer() {
+            public String getLabel(int seat) {
+                return seatStore.getLabel(seat);
+            }
 
-        for (int i = 0; i < leftRows.length; i++) {
-            for (int n = 4; n >= 1; n--) addSwapSeat(grid, leftRows[i] + n);
-            grid.add(new JLabel());
-            if (i < rightRows.length) {
-                for (int n = 1; n <= 4; n++) addSwapSeat(grid, rightRows[i] + n);
-            } else {
-                for (int n = 1; n <= 4; n++) grid.add(new JLabel());
+            public Color getColor(int seat) {
+                String seatId = roomLayout.seatId(seat);
+                return seatManagerMode == SeatManagerMode.SWAP ? getSeatSwapColor(seatId) : getSeatEditorColor(seatId);
             }
-        }
+        }, Main::handleSeatMapClick);
 
-        return grid;
+        JScrollPane scroll = new JScrollPane(seatMapCanvas);
+        scroll.setBorder(null);
+        scroll.getViewport().setBackground(new Color(45, 45, 60));
+        return scroll;
+    }
+
+    private static void handleSeatMapClick(int seat, Rectangle bounds) {
+        String seatId = roomLayout.seatId(seat);
+        if (seatManagerMode == SeatManagerMode.EDIT) {
+            promptSeatName(seatId);
+        } else if (seatManagerMode == SeatManagerMode.SWAP) {
+            handleSwapSelection(seatId);
+        } else {
+            setSeatDisabled(seatId, !drawEngine.isDisabled(seatId), seatMapCanvas, bounds);
+        }
     }
 
     private static JToggleButton createSeatToggle(String seat) {
@@ -497,143 +821,143 @@ public class Main {
         btn.setFocusPainted(false);
         btn.setForeground(Color.WHITE);
         btn.setBackground(BASE_SEAT_COLOR);
-        btn.setSelected(disabledSeats.contains(seat));
+        btn.setSelected(drawEngine.isDisabled(seat));
 
-        if (disabledSeats.contains(seat)) {
+        if (drawEngine.isDisabled(seat)) {
             btn.setBackground(DISABLED_SEAT_COLOR);
-        } else if (tardySeats.contains(seat)) {
+        } else if (drawEngine.isTardy(seat)) {
             btn.setBackground(TARDY_SEAT_COLOR);
         } else {
             btn.setBackground(BASE_SEAT_COLOR);
         }
 
         btn.addItemListener(e -> {
-            if (btn.isSelected()) {
-                disabledSeats.add(seat);
-                tardySeats.remove(seat);
-                btn.setBackground(DISABLED_SEAT_COLOR);
-            } else {
-                disabledSeats.remove(seat);
-                handleReenabledSeatPrompt(seat, btn);
+            if (refreshingSeatToggles) {
+                return;
             }
-            refreshSeatEditorButton(seat);
-            refreshSeatSwapButton(seat);
-            initSeats();
+            setSeatDisabled(seat, btn.isSelected(), btn, new Rectangle(btn.getSize()));
         });
 
         seatToggleButtons.put(seat, btn);
         return btn;
     }
 
-    private static void handleReenabledSeatPrompt(String seat, JToggleButton btn) {
-        String label = getSeatLabel(seat);
-        if (label == null || label.trim().isEmpty() || label.equals(seat)) {
-            tardySeats.remove(seat);
-            btn.setBackground(BASE_SEAT_COLOR);
-            refreshSeatEditorButton(seat);
-            refreshSeatSwapButton(seat);
+    private static void setSeatDisabled(String seat, boolean disabled, Component anchor, Rectangle bounds) {
+        if (disabled) {
+            drawEngine.setDisabled(seat, true);
+            drawEngine.setTardy(seat, false);
+        } else {
+            drawEngine.setDisabled(seat, false);
+            handleReenabledSeatPrompt(seat, anchor, bounds);
+        }
+        seatChanged(seat);
+        journalSeat(seat);
+        recordHistory(disabled ? "Mark Absent" : "Mark Present");
+        updateCounter();
+    }
+
+    private static void handleReenabledSeatPrompt(String seat, Component anchor, Rectangle bounds) {
+        if (!isSeatOccupied(seat)) {
+            drawEngine.setTardy(seat, false);
+            seatChanged(seat);
             return;
         }
 
-        tardySeats.remove(seat);
-        btn.setBackground(BASE_SEAT_COLOR);
+        drawEngine.setTardy(seat, false);
+        seatChanged(seat);
 
         JPopupMenu menu = new JPopupMenu();
 
         JMenuItem presentItem = new JMenuItem("Present");
         presentItem.addActionListener(e -> {
-            tardySeats.remove(seat);
-            btn.setBackground(BASE_SEAT_COLOR);
-            refreshSeatEditorButton(seat);
-            refreshSeatSwapButton(seat);
+            drawEngine.setTardy(seat, false);
+            seatChanged(seat);
+            journalSeat(seat);
+            recordHistory("Mark Present");
         });
 
         JMenuItem tardyItem = new JMenuItem("Tardy");
         tardyItem.addActionListener(e -> {
-            tardySeats.add(seat);
-            btn.setBackground(TARDY_SEAT_COLOR);
-            refreshSeatEditorButton(seat);
-            refreshSeatSwapButton(seat);
+            drawEngine.setTardy(seat, true);
+            seatChanged(seat);
+            journalSeat(seat);
+            recordHistory("Mark Tardy");
         });
 
         menu.add(presentItem);
         menu.add(tardyItem);
 
-        menu.show(btn, 0, btn.getHeight());
+        menu.show(anchor, bounds.x, bounds.y + bounds.height);
     }
 
-    private static void addEditableSeat(JPanel grid, String seat) {
+    private static JButton createEditableSeat(String seat) {
         JButton btn = new JButton(getSeatLabel(seat));
         btn.setBackground(getSeatEditorColor(seat));
         btn.setForeground(Color.WHITE);
-        btn.addActionListener(e -> {
-            String name = JOptionPane.showInputDialog("Enter name for seat " + seat);
-            if (name != null) {
-                updateSeatLabel(seat, name);
-                btn.setText(getSeatLabel(seat));
-            }
-        });
-        grid.add(btn);
+        btn.addActionListener(e -> promptSeatName(seat));
         seatEditButtons.put(seat, btn);
+        return btn;
+    }
+
+    private static void promptSeatName(String seat) {
+        String name = JOptionPane.showInputDialog("Enter name for seat " + seat);
+        if (name != null) {
+            updateSeatLabel(seat, name);
+            journalSeat(seat);
+            recordHistory("Rename Seat");
+        }
     }
 
-    private static void addSwapSeat(JPanel grid, String seat) {
+    private static JButton createSwapSeat(String seat) {
         JButton btn = new JButton(getSeatLabel(seat));
         btn.setBackground(getSeatSwapColor(seat));
         btn.setForeground(Color.WHITE);
         btn.addActionListener(e -> handleSwapSelection(seat));
-        grid.add(btn);
         seatSwapButtons.put(seat, btn);
+        return btn;
     }
 
     private static void handleSwapSelection(String seat) {
-        String label = getSeatLabel(seat);
-        boolean seatHasName = label != null && !label.trim().isEmpty() && !label.equals(seat);
-
         if (swapSelectedSeat == null) {
-            if (!seatHasName) {
+            if (!isSeatOccupied(seat)) {
                 return;
             }
             swapSelectedSeat = seat;
-            refreshSeatSwapButtons();
+            seatChanged(seat);
             return;
         }
 
         if (swapSelectedSeat.equals(seat)) {
-            swapSelectedSeat = null;
-            refreshSeatSwapButtons();
+            clearSwapSelection();
             return;
         }
 
-        String firstLabel = getSeatLabel(swapSelectedSeat);
-        String secondLabel = getSeatLabel(seat);
-
-        boolean firstHasName = firstLabel != null && !firstLabel.trim().isEmpty() && !firstLabel.equals(swapSelectedSeat);
-        boolean secondHasName = secondLabel != null && !secondLabel.trim().isEmpty() && !secondLabel.equals(seat);
+        int first = roomLayout.indexOf(swapSelectedSeat);
+        int second = roomLayout.indexOf(seat);
+        boolean firstHasName = seatStore.isOccupied(first);
+        boolean secondHasName = seatStore.isOccupied(second);
 
         if (firstHasName && !secondHasName) {
-            updateSeatLabel(seat, firstLabel);
-            disabledSeats.remove(seat);
-
-            updateSeatLabel(swapSelectedSeat, swapSelectedSeat);
-            disabledSeats.add(swapSelectedSeat);
+            seatStore.swap(first, second);
+            drawEngine.moveSeat(first, second);
         } else if (firstHasName && secondHasName) {
-            updateSeatLabel(swapSelectedSeat, secondLabel);
-            updateSeatLabel(seat, firstLabel);
+            seatStore.swap(first, second);
+            drawEngine.swapSeats(first, second);
         }
 
-        swapSelectedSeat = null;
-        refreshSeatSettingsToggles();
-        refreshSeatEditorButtons();
-        refreshSeatSwapButtons();
-        initSeats();
+        journalSeat(swapSelectedSeat);
+        journalSeat(seat);
+        seatChanged(seat);
+        clearSwapSelection();
+        recordHistory("Swap Seats");
+        updateCounter();
     }
 
     private static Color getSeatEditorColor(String seat) {
-        if (disabledSeats.contains(seat)) {
+        if (drawEngine.isDisabled(seat)) {
             return DISABLED_SEAT_COLOR;
         }
-        if (tardySeats.contains(seat)) {
+        if (drawEngine.isTardy(seat)) {
             return TARDY_SEAT_COLOR;
         }
         return BASE_SEAT_COLOR;
@@ -654,12 +978,6 @@ public class Main {
         }
     }
 
-    private static void refreshSeatEditorButtons() {
-        for (String seat : seatEditButtons.keySet()) {
-            refreshSeatEditorButton(seat);
-        }
-    }
-
     private static void refreshSeatSwapButton(String seat) {
         JButton swapBtn = seatSwapButtons.get(seat);
         if (swapBtn != null) {
@@ -668,198 +986,422 @@ public class Main {
         }
     }
 
-    private static void refreshSeatSwapButtons() {
-        for (String seat : seatSwapButtons.keySet()) {
-            refreshSeatSwapButton(seat);
+    private static void clearSeatingChart() {
+        BitSet changed = new BitSet(roomLayout.seatCount());
+        for (int seat = 0; seat < roomLayout.seatCount(); seat++) {
+            if (seatStore.isOccupied(seat) || drawEngine.isDisabled(seat) || drawEngine.isTardy(seat)) {
+                changed.set(seat);
+            }
         }
-    }
 
-    private static void clearSeatingChart() {
-        disabledSeats.clear();
-        tardySeats.clear();
-        swapSelectedSeat = null;
-        ensureSeatLabels();
+        drawEngine.clearDisabled();
+        drawEngine.clearTardy();
+        clearSwapSelection();
+        seatStore.clear();
+
+        initSeats();
+        seatsChanged(changed);
+        recordHistory("Clear");
+        compactJournal();
+    }
 
-        for (String seat : seatLabels.keySet()) {
-            updateSeatLabel(seat, seat);
+    // Uses the period's P<n>_constraints.txt when there is one, solving off
+    // the EDT; otherwise a plain shuffle.
+    private static void randomizeSeatingChart() {
+        ChartData chart = captureSeatingChart();
+        String periodTag = currentPeriodTag;
+        if (periodTag == null) {
+            applyRandomizedChart(chart, null);
+            return;
         }
 
-        initSeats();
-        refreshSeatSettingsToggles();
-        refreshSeatEditorButtons();
-        refreshSeatSwapButtons();
+        File constraintsFile = getPeriodConstraintsFile(periodTag);
+        SplittableRandom solverRandom = periodStream("randomize").split();
+        seatManagerEditButton.setEnabled(false);
+        onEdt(chartIo.submit(() -> readConstraints(constraintsFile))
+                .thenApplyAsync(constraints -> {
+                    if (constraints != null) {
+                        SeatingSolver.solve(chart, constraints, solverRandom, SeatingSolver.DEFAULT_BUDGET_MILLIS);
+                    }
+                    return constraints;
+                }), constraints -> {
+                    seatManagerEditButton.setEnabled(true);
+                    if (periodTag.equals(currentPeriodTag)) {
+                        applyRandomizedChart(chart, constraints);
+                    }
+                }, error -> {
+                    error.printStackTrace();
+                    seatManagerEditButton.setEnabled(true);
+                    // Rather than quietly shuffling without the rules
+                    JOptionPane.showMessageDialog(null,
+                            constraintsFile.getName() + " couldn't be read: " + error.getMessage()
+                                    + "\nThe chart was not randomized.",
+                            "Chart Not Randomized", JOptionPane.WARNING_MESSAGE);
+                });
     }
 
-    private static java.util.List<String> getAllSeatIds() {
-        java.util.List<String> seats = new ArrayList<>();
-        for (int i = 0; i < leftRows.length; i++) {
-            for (int n = 1; n <= 4; n++) {
-                seats.add(leftRows[i] + n);
-            }
-            if (i < rightRows.length) {
-                for (int n = 1; n <= 4; n++) {
-                    seats.add(rightRows[i] + n);
-                }
-            }
+    private static void applyRandomizedChart(ChartData chart, SeatingConstraints constraints) {
+        if (constraints == null) {
+            chart.randomize(periodStream("randomize"));
         }
-        return seats;
+        applySeatingChart(chart);
+        recordHistory("Randomize");
+        compactJournal();
     }
 
-    private static void randomizeSeatingChart() {
-        ensureSeatLabels();
+    // A missing or unreadable file just means a plain shuffle
+    private static SeatingConstraints readConstraints(File file) throws IOException {
+        return file.exists() ? SeatingConstraints.load(file) : null;
+    }
 
-        java.util.List<String> names = new ArrayList<>();
-        for (String seat : getAllSeatIds()) {
-            String label = getSeatLabel(seat);
-            if (label != null && !label.trim().isEmpty() && !label.equals(seat)) {
-                names.add(label.trim());
-            }
+    private static File getPeriodConstraintsFile(String periodTag) {
+        return new File(getPreferredDocumentsDir(), periodTag + "_constraints.txt");
+    }
+
+    private static void saveSeatingChart(File file) {
+        long start = System.nanoTime();
+        ChartData chart = captureSeatingChart();
+        if (seatJournal != null && file.getAbsoluteFile().equals(seatJournal.getChartFile().getAbsoluteFile())) {
+            periodFileState = ChartState.of(chart);
         }
+        onEdt(chartIo.saveChart(file, ChartSnapshot.capture(chart, drawEngine)), written -> {
+        }, error -> {
+            error.printStackTrace();
+            JOptionPane.showMessageDialog(null, "The chart couldn't be saved to " + file.getName() + ": "
+                    + error.getMessage(), "Chart Not Saved", JOptionPane.ERROR_MESSAGE);
+        });
+        PickerMetrics.CHART_SAVE.recordSince(start);
+    }
 
-        Collections.shuffle(names);
+    // Timed from the click until the chart is on screen
+    private static void loadSeatingChart(File file) {
+        long start = System.nanoTime();
+        java.util.concurrent.CompletableFuture<ChartData> read = chartIo.loadChart(file, roomLayout).thenApply(chart -> {
+            ChartCache.dropStaleTardy(chart, ChartCache.savedOn(file), LocalDate.now());
+            return chart;
+        });
+        onEdt(read, chart -> {
+            applySeatingChart(chart);
+            recordHistory("Load Chart");
+            compactJournal();
+            PickerMetrics.CHART_LOAD.recordSince(start);
+        });
+    }
 
-        java.util.List<String> seats = getAllSeatIds();
+    private static ChartData captureSeatingChart() {
+        ChartData chart = new ChartData(roomLayout);
+        seatStore.copyTo(chart);
+        for (int seat = 0; seat < roomLayout.seatCount(); seat++) {
+            chart.setDisabled(seat, drawEngine.isDisabled(seat));
+            chart.setTardy(seat, drawEngine.isTardy(seat));
+        }
+        return chart;
+    }
 
-        disabledSeats.clear();
-        tardySeats.clear();
-        swapSelectedSeat = null;
+    // Only seats whose name or state differs from the new chart are refreshed
+    private static void applySeatingChart(ChartData chart) {
+        clearSwapSelection();
 
-        for (int i = 0; i < seats.size(); i++) {
-            String seat = seats.get(i);
-            if (i < names.size()) {
-                updateSeatLabel(seat, names.get(i));
-            } else {
-                updateSeatLabel(seat, seat);
-                disabledSeats.add(seat);
+        BitSet changed = new BitSet(roomLayout.seatCount());
+        for (int seat = 0; seat < roomLayout.seatCount(); seat++) {
+            if (!Objects.equals(seatStore.getName(seat), chart.getName(seat))
+                    || drawEngine.isDisabled(seat) != chart.isDisabled(seat)
+                    || drawEngine.isTardy(seat) != chart.isTardy(seat)) {
+                changed.set(seat);
             }
+            drawEngine.setDisabled(seat, chart.isDisabled(seat));
+            drawEngine.setTardy(seat, chart.isTardy(seat));
         }
+        seatStore.copyFrom(chart);
 
         initSeats();
-        refreshSeatSettingsToggles();
-        refreshSeatEditorButtons();
-        refreshSeatSwapButtons();
+        seatsChanged(changed);
     }
 
-    private static void saveSeatingChart(File file) {
-        ensureSeatLabels();
-
-        try (PrintWriter pw = new PrintWriter(new FileWriter(file))) {
-            pw.println("Seat,Enabled,Name");
-            for (String seat : seatLabels.keySet()) {
-                String name = getSeatLabel(seat);
-                if (name.equals(seat)) name = "";
-                boolean enabled = !disabledSeats.contains(seat);
-                pw.println(seat + "," + enabled + "," + name);
-            }
+    /* ================= EXTERNAL CHART EDITS ================= */
+    // Picks up period charts changed on disk by someone else, e.g. a
+    // co-teacher's edit synced through OneDrive, without a restart.
+    private static void startChartWatcher() {
+        ChartWatcher watcher = new ChartWatcher(getPreferredDocumentsDir(), CHART_RELOAD_DEBOUNCE_MS,
+                name -> ChartCache.periodTagOf(name) != null, Main::chartFileChanged);
+        try {
+            watcher.start();
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
-    private static void loadSeatingChart(File file) {
-        tardySeats.clear();
-        swapSelectedSeat = null;
-
-        try (BufferedReader br = new BufferedReader(new FileReader(file))) {
-            br.readLine();
-            String line;
-            while ((line = br.readLine()) != null) {
-                String[] parts = line.split(",", -1);
-                if (parts.length >= 3) {
-                    String seat = parts[0];
-                    boolean enabled = Boolean.parseBoolean(parts[1].trim());
-                    String name = parts[2].trim();
-
-                    if (enabled) disabledSeats.remove(seat);
-                    else disabledSeats.add(seat);
-
-                    updateSeatLabel(seat, name);
-                }
+    // Watcher thread: re-reads just that chart on the I/O thread, after any
+    // of our own queued writes to it
+    private static void chartFileChanged(File chartFile) {
+        String periodTag = ChartCache.periodTagOf(chartFile.getName());
+        chartCache.invalidate(periodTag);
+        SwingUtilities.invokeLater(() -> {
+            // Another period's next load sees the change through the snapshot checksum
+            if (!periodTag.equals(currentPeriodTag)) {
+                return;
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+            // periodFileState is what our latest queued save writes; the read
+            // is only diffed against it if that save, and no other of ours,
+            // is the one on disk. A coalesced newer save can land before the
+            // read even though it was queued after, and our own edits would
+            // then look external. A dropped read is covered by our pending
+            // save, or by the watcher event of the one that already landed.
+            SeatJournal journal = seatJournal;
+            ChartState readAgainst = periodFileState;
+            // Keyed the way saves are, whatever path form the watcher reports
+            File periodFile = getPeriodChartFile(periodTag);
+            long readAfter = chartIo.queuedWrites(periodFile);
+            onEdt(chartIo.submit(() -> chartIo.landedWrites(periodFile) == readAfter
+                    ? ChartCodec.read(periodFile, roomLayout) : null), chart -> {
+                // Still the same opening of the period
+                if (chart != null && journal != null && seatJournal == journal) {
+                    applyExternalChart(chart, readAgainst);
+                }
+            });
+        });
+    }
+
+    // Applies only the seats that differ from what we last read or wrote
+    // when the read was queued, so local edits to other seats survive and
+    // our own saves change nothing. chartFileChanged only passes a read of
+    // the file as our save of readAgainst left it (plus any outside edit), so
+    // a save or compaction since then doesn't turn its seats into changes.
+    private static void applyExternalChart(ChartData chart, ChartState readAgainst) {
+        ChartState fileState = ChartState.of(chart);
+        BitSet changed = new BitSet(roomLayout.seatCount());
+        ChartState.diff(readAgainst, fileState, changed);
+        if (periodFileState == readAgainst) {
+            periodFileState = fileState;
         }
-        initSeats();
-        refreshSeatSettingsToggles();
-        refreshSeatEditorButtons();
-        refreshSeatSwapButtons();
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        recordHistory("Edit");
+        if (swapSelectedSeat != null && changed.get(roomLayout.indexOf(swapSelectedSeat))) {
+            clearSwapSelection();
+        }
+        for (int seat = changed.nextSetBit(0); seat >= 0; seat = changed.nextSetBit(seat + 1)) {
+            seatStore.setName(seat, chart.getName(seat));
+            drawEngine.setDisabled(seat, chart.isDisabled(seat));
+            drawEngine.setTardy(seat, chart.isTardy(seat));
+        }
+        seatsChanged(changed);
+        recordHistory("Chart Update");
+        updateCounter();
+        resultLabel.setText("Chart updated on another device");
+        compactJournal();
     }
 
-    /* ================= SEAT LABEL HELPERS ================= */
-    private static void ensureSeatLabels() {
-        for (int i = 0; i < leftRows.length; i++) {
-            for (int n = 1; n <= 4; n++) {
-                String leftSeat = leftRows[i] + n;
-                seatLabels.putIfAbsent(leftSeat, leftSeat);
-                if (i < rightRows.length) {
-                    String rightSeat = rightRows[i] + n;
-                    seatLabels.putIfAbsent(rightSeat, rightSeat);
-                }
-            }
+    /* ================= UNDO HISTORY ================= */
+    // Makes the seats changed since the last step one undoable step. Only
+    // those seats are read back, and only their leaves are copied.
+    private static void recordHistory(String label) {
+        if (historyDirty.isEmpty()) {
+            return;
+        }
+        ChartState.Editor edit = chartHistory.current().edit();
+        for (int seat = historyDirty.nextSetBit(0); seat >= 0; seat = historyDirty.nextSetBit(seat + 1)) {
+            edit.set(seat, seatStore.getName(seat), drawEngine.isDisabled(seat), drawEngine.isTardy(seat));
+        }
+        historyDirty.clear();
+        chartHistory.commit(label, edit);
+    }
+
+    // Starts a new history at the chart on screen, for a newly opened period
+    private static void resetHistory() {
+        ChartState.Editor edit = ChartState.empty(roomLayout.seatCount()).edit();
+        for (int seat = 0; seat < roomLayout.seatCount(); seat++) {
+            edit.set(seat, seatStore.getName(seat), drawEngine.isDisabled(seat), drawEngine.isTardy(seat));
+        }
+        historyDirty.clear();
+        chartHistory.reset(edit.build());
+    }
+
+    private static void undoEdit() {
+        // An edit not recorded yet becomes its own step first
+        recordHistory("Edit");
+        ChartState before = chartHistory.current();
+        applyHistoryState(before, chartHistory.undo());
+    }
+
+    private static void redoEdit() {
+        recordHistory("Edit");
+        ChartState before = chartHistory.current();
+        applyHistoryState(before, chartHistory.redo());
+    }
+
+    // Puts back the seats that differ between the two states; enabling and
+    // disabling go through the draw engine so the current cycle is kept
+    private static void applyHistoryState(ChartState before, ChartState after) {
+        if (after == null) {
+            return;
+        }
+        clearSwapSelection();
+        BitSet changed = new BitSet(roomLayout.seatCount());
+        ChartState.diff(before, after, changed);
+        for (int seat = changed.nextSetBit(0); seat >= 0; seat = changed.nextSetBit(seat + 1)) {
+            seatStore.setName(seat, after.getName(seat));
+            drawEngine.setDisabled(seat, after.isDisabled(seat));
+            drawEngine.setTardy(seat, after.isTardy(seat));
+            journalSeat(roomLayout.seatId(seat));
         }
+        seatsChanged(changed);
+        historyDirty.clear();
+        updateCounter();
+        flushJournal();
     }
 
+    private static void bindUndoKeys(JRootPane rootPane) {
+        int shortcut = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        InputMap keys = rootPane.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, shortcut), "undo");
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_Y, shortcut), "redo");
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, shortcut | InputEvent.SHIFT_DOWN_MASK), "redo");
+        rootPane.getActionMap().put("undo", new AbstractAction() {
+            public void actionPerformed(ActionEvent e) {
+                undoEdit();
+            }
+        });
+        rootPane.getActionMap().put("redo", new AbstractAction() {
+            public void actionPerformed(ActionEvent e) {
+                redoEdit();
+            }
+        });
+    }
+
+    /* ================= SEAT LABEL HELPERS ================= */
     private static String getSeatLabel(String seat) {
-        return seatLabels.getOrDefault(seat, seat);
+        int index = roomLayout.indexOf(seat);
+        return index >= 0 ? seatStore.getLabel(index) : seat;
+    }
+
+    private static boolean isSeatOccupied(String seat) {
+        int index = roomLayout.indexOf(seat);
+        return index >= 0 && seatStore.isOccupied(index);
     }
 
     private static void updateSeatLabel(String seat, String label) {
-        String normalized = (label == null || label.trim().isEmpty()) ? seat : label.trim();
-        seatLabels.put(seat, normalized);
+        seatStore.setName(roomLayout.indexOf(seat), label);
+        seatChanged(seat);
+    }
 
-        JToggleButton toggle = seatToggleButtons.get(seat);
-        if (toggle != null) {
-            toggle.setText(normalized);
+    private static void seatChanged(String seat) {
+        int index = roomLayout.indexOf(seat);
+        if (index >= 0) {
+            seatChanges.seatChanged(index);
+            historyDirty.set(index);
         }
+    }
+
+    private static void seatsChanged(BitSet changed) {
+        seatChanges.seatsChanged(changed);
+        historyDirty.or(changed);
+    }
 
-        refreshSeatEditorButton(seat);
-        refreshSeatSwapButton(seat);
+    private static void clearSwapSelection() {
+        if (swapSelectedSeat != null) {
+            seatChanged(swapSelectedSeat);
+            swapSelectedSeat = null;
+        }
     }
 
-    private static void refreshSeatSettingsToggles() {
-        for (Map.Entry<String, JToggleButton> entry : seatToggleButtons.entrySet()) {
-            String seat = entry.getKey();
-            JToggleButton toggle = entry.getValue();
-            toggle.setSelected(disabledSeats.contains(seat));
-            toggle.setText(getSeatLabel(seat));
+    // Seat change listener for every seat view
+    private static void refreshChangedSeats(BitSet changed) {
+        for (int seat = changed.nextSetBit(0); seat >= 0; seat = changed.nextSetBit(seat + 1)) {
+            String seatId = roomLayout.seatId(seat);
+            refreshSeatToggle(seatId);
+            refreshSeatEditorButton(seatId);
+            refreshSeatSwapButton(seatId);
+        }
 
-            if (disabledSeats.contains(seat)) {
-                toggle.setBackground(DISABLED_SEAT_COLOR);
-            } else if (tardySeats.contains(seat)) {
-                toggle.setBackground(TARDY_SEAT_COLOR);
+        if (seatMapCanvas != null) {
+            if (changed.cardinality() > SEAT_MAP_REPAINT_ALL) {
+                seatMapCanvas.repaint();
             } else {
-                toggle.setBackground(BASE_SEAT_COLOR);
+                for (int seat = changed.nextSetBit(0); seat >= 0; seat = changed.nextSetBit(seat + 1)) {
+                    seatMapCanvas.repaintSeat(seat);
+                }
             }
         }
     }
 
+    private static void refreshSeatToggle(String seat) {
+        JToggleButton toggle = seatToggleButtons.get(seat);
+        if (toggle == null) {
+            return;
+        }
+
+        // Programmatic setSelected must not re-run the toggle listener
+        refreshingSeatToggles = true;
+        try {
+            toggle.setSelected(drawEngine.isDisabled(seat));
+        } finally {
+            refreshingSeatToggles = false;
+        }
+        toggle.setText(getSeatLabel(seat));
+
+        if (drawEngine.isDisabled(seat)) {
+            toggle.setBackground(DISABLED_SEAT_COLOR);
+        } else if (drawEngine.isTardy(seat)) {
+            toggle.setBackground(TARDY_SEAT_COLOR);
+        } else {
+            toggle.setBackground(BASE_SEAT_COLOR);
+        }
+    }
+
+    /* ================= RANDOM STREAMS ================= */
+    // The current period's stream for purpose, kept for the session so going
+    // back to a period continues its sequence instead of repeating it
+    private static SplittableRandom periodStream(String purpose) {
+        String period = currentPeriodTag != null ? currentPeriodTag : "none";
+        return periodStreams.computeIfAbsent(period + "/" + purpose,
+                key -> seatRandom.streamFor(SeatRandom.roomKey(roomLayout), period, purpose));
+    }
+
+    private static void useSeatStream() {
+        drawEngine.setRandom(periodStream("seats"));
+        logDraw("session " + SeatRandom.formatSeed(seatRandom.getSessionSeed()) + " seats "
+                + SeatRandom.formatSeed(seatRandom.seedFor(SeatRandom.roomKey(roomLayout),
+                currentPeriodTag != null ? currentPeriodTag : "none", "seats")));
+    }
+
+    // Appends to draw_log.txt, so a challenged pick can be checked against
+    // the session seed: <time> <period> <event>
+    private static void logDraw(String event) {
+        String line = java.time.LocalDateTime.now().withNano(0) + " "
+                + (currentPeriodTag != null ? currentPeriodTag : "-") + " " + event + "\n";
+        File logFile = new File(getPreferredDocumentsDir(), "draw_log.txt");
+        chartIo.submit(() -> {
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(logFile, true),
+                    java.nio.charset.StandardCharsets.UTF_8)) {
+                writer.write(line);
+            }
+            return null;
+        }).exceptionally(t -> {
+            t.printStackTrace();
+            return null;
+        });
+    }
+
     /* ================= SEAT LOGIC ================= */
     private static void initSeats() {
-        seatPool.clear();
-        for (int i = 0; i < leftRows.length; i++) {
-            for (int n = 1; n <= 4; n++) {
-                String leftSeat = leftRows[i] + n;
-                if (!disabledSeats.contains(leftSeat)) seatPool.add(leftSeat);
-                if (i < rightRows.length) {
-                    String rightSeat = rightRows[i] + n;
-                    if (!disabledSeats.contains(rightSeat)) seatPool.add(rightSeat);
-                }
-            }
-        }
-        Collections.shuffle(seatPool);
-        seatIndex = 0;
+        drawEngine.reset();
         updateCounter();
     }
 
     private static String getNextSeat() {
-        if (seatPool.isEmpty()) return "No seats";
-        if (seatIndex >= seatPool.size()) initSeats();
+        long start = System.nanoTime();
+        int seat = drawEngine.next();
+        PickerMetrics.DRAW_SEAT.recordSince(start);
+        if (seat < 0) return "No seats";
         updateCounter();
-        return seatPool.get(seatIndex++);
+        return drawEngine.seatId(seat);
     }
 
     private static void updateCounter() {
-        counterLabel.setText("Remaining seats: " + Math.max(0, seatPool.size() - seatIndex));
+        counterLabel.setText("Remaining seats: " + drawEngine.remaining());
     }
 
     /* ================= BUTTON HANDLER ================= */
@@ -868,6 +1410,7 @@ public class Main {
             String student = getNextName();
             String seat = getNextSeat();
             String seatLabel = getSeatLabel(seat);
+            logDraw("pick " + seat + ("No name".equals(student) ? "" : " " + student));
 
             if ("No name".equals(student)) {
                 resultLabel.setText(seatLabel);
@@ -877,6 +1420,122 @@ public class Main {
         }
     }
 
+    /* ================= BATCH PICKS ================= */
+    private static void pickSeveral() {
+        Integer count = promptCount("How many students?");
+        if (count == null) {
+            return;
+        }
+
+        // Nobody can be picked twice, so more than the larger pool is pointless
+        count = Math.min(count, Math.max(drawEngine.poolSize(), namePool.size()));
+        int[] seats = new int[Math.min(count, drawEngine.poolSize())];
+        int seatCount = drawEngine.next(seats, seats.length);
+        java.util.List<NamePool.NameEntry> students = namePool.next(count);
+        if (!students.isEmpty()) {
+            saveNameHistory();
+        }
+
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < Math.max(seatCount, students.size()); i++) {
+            String seatLabel = i < seatCount ? getSeatLabel(drawEngine.seatId(seats[i])) : "No seat";
+            text.append(i + 1).append(". ");
+            if (i < students.size()) {
+                text.append(students.get(i).name).append(" → ");
+            }
+            text.append(seatLabel).append('\n');
+            logDraw("pick " + (i < seatCount ? drawEngine.seatId(seats[i]) : "-")
+                    + (i < students.size() ? " " + students.get(i).name : ""));
+        }
+
+        updateCounter();
+        resultLabel.setText(Math.max(seatCount, students.size()) + " picked");
+        showBatchResult("Picked", text.toString());
+    }
+
+    // Groups roster names when there is a roster, otherwise the students in
+    // the enabled seats.
+    private static void formGroups() {
+        JTextField groupsField = new JTextField(4);
+        JTextField sizeField = new JTextField(4);
+        JPanel panel = new JPanel(new GridLayout(2, 2, 6, 6));
+        panel.add(new JLabel("Number of groups:"));
+        panel.add(groupsField);
+        panel.add(new JLabel("Per group (blank for everyone):"));
+        panel.add(sizeField);
+        if (JOptionPane.showConfirmDialog(null, panel, "Form Groups", JOptionPane.OK_CANCEL_OPTION)
+                != JOptionPane.OK_OPTION) {
+            return;
+        }
+
+        int groupCount;
+        int groupSize;
+        try {
+            groupCount = Integer.parseInt(groupsField.getText().trim());
+            groupSize = sizeField.getText().trim().isEmpty() ? 0 : Integer.parseInt(sizeField.getText().trim());
+        } catch (NumberFormatException e) {
+            return;
+        }
+        if (groupCount <= 0 || groupSize < 0) {
+            return;
+        }
+        // Past one group per student the rest would all be empty
+        groupCount = Math.min(groupCount, Math.max(1, namePool.isEmpty() ? drawEngine.poolSize() : namePool.size()));
+
+        StringBuilder text = new StringBuilder();
+        if (!namePool.isEmpty()) {
+            java.util.List<java.util.List<NamePool.NameEntry>> groups = namePool.nextGroups(groupCount, groupSize);
+            saveNameHistory();
+            for (int group = 0; group < groups.size(); group++) {
+                java.util.List<String> names = new ArrayList<>();
+                for (NamePool.NameEntry entry : groups.get(group)) {
+                    names.add(entry.name);
+                }
+                appendGroup(text, group, names);
+            }
+        } else {
+            int[][] groups = drawEngine.nextGroups(groupCount, groupSize);
+            for (int group = 0; group < groups.length; group++) {
+                java.util.List<String> names = new ArrayList<>();
+                for (int seat : groups[group]) {
+                    names.add(getSeatLabel(drawEngine.seatId(seat)));
+                }
+                appendGroup(text, group, names);
+            }
+            updateCounter();
+        }
+
+        resultLabel.setText(groupCount + " groups");
+        showBatchResult("Groups", text.toString());
+    }
+
+    private static void appendGroup(StringBuilder text, int group, java.util.List<String> names) {
+        text.append("Group ").append(group + 1).append(": ");
+        text.append(names.isEmpty() ? "None" : String.join(", ", names)).append('\n');
+    }
+
+    private static Integer promptCount(String message) {
+        String value = JOptionPane.showInputDialog(null, message);
+        if (value == null) {
+            return null;
+        }
+        try {
+            int count = Integer.parseInt(value.trim());
+            return count > 0 ? count : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void showBatchResult(String title, String text) {
+        JTextArea area = new JTextArea(text);
+        area.setEditable(false);
+        area.setFont(new Font("SansSerif", Font.PLAIN, 16));
+        JScrollPane scroll = new JScrollPane(area);
+        scroll.setPreferredSize(new Dimension(420, 320));
+        JOptionPane.showMessageDialog(null, scroll, title, JOptionPane.PLAIN_MESSAGE);
+    }
+
     /* ================= BUTTON CREATION ================= */
     public static JButton makeTxtButton(String txt, Color clr) {
         return makeTxtButton(txt, clr, new Dimension(160, 50), 16, true);
@@ -907,19 +1566,45 @@ public class Main {
 
     /* ================= NAME STORAGE ================= */
     private static String getNextName() {
-        if (namePool.isEmpty()) return "No name";
-        if (nameIndex >= namePool.size()) {
-            Collections.shuffle(namePool);
-            nameIndex = 0;
-        }
-        return namePool.get(nameIndex++).name;
+        long start = System.nanoTime();
+        NamePool.NameEntry entry = namePool.next();
+        PickerMetrics.DRAW_NAME.recordSince(start);
+        if (entry == null) return "No name";
+        saveNameHistory();
+        return entry.name;
     }
 
-    static class NameEntry {
-        String name;
+    private static File getRosterFile() {
+        return new File(getPreferredDocumentsDir(), "roster.txt");
+    }
 
-        NameEntry(String n) {
-            name = n;
+    private static File getNameHistoryFile() {
+        return new File(getPreferredDocumentsDir(), "name_history.txt");
+    }
+
+    private static void loadNamePool() {
+        File rosterFile = getRosterFile();
+        File historyFile = getNameHistoryFile();
+        if (!rosterFile.exists()) {
+            return;
         }
+        onEdt(chartIo.submit(() -> {
+            java.util.List<String> roster = NamePool.readRoster(rosterFile);
+            Map<String, Integer> history = historyFile.exists()
+                    ? NamePool.readHistory(historyFile) : Collections.emptyMap();
+            return new AbstractMap.SimpleImmutableEntry<>(roster, history);
+        }), loaded -> {
+            namePool.setRoster(loaded.getKey());
+            namePool.applyHistory(loaded.getValue());
+        });
+    }
+
+    // Coalesced, so a run of quick picks rewrites the file once
+    private static void saveNameHistory() {
+        Map<String, Integer> history = namePool.historySnapshot();
+        chartIo.saveLatest(getNameHistoryFile(), file -> NamePool.writeHistory(file, history)).exceptionally(t -> {
+            t.printStackTrace();
+            return null;
+        });
     }
 }
\ No newline at end of file
@@ -0,0 +1,335 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.random.RandomGenerator;
+
+/*
+ * The roster of student names for Pick Seat, with a per-student call count
+ * that is kept across sessions in a history file.
+ *
+ * Two draw modes:
+ *  - shuffle: every student once per cycle, in a fresh random order each cycle
+ *  - fair: students called less often over the term are more likely to come
+ *    up, with weight 1 / (1 + calls - fewest calls)^2
+ *
+ * Fair draws are O(1). Students are grouped into buckets by call count, an
+ * alias table picks a bucket (by bucket size times weight) and a uniform
+ * index picks the student in it. Calling someone moves them to the next
+ * bucket in O(1), and only the small bucket-level table is rebuilt, since the
+ * number of distinct call counts stays tiny next to the roster.
+ */
+class NamePool {
+
+    static final class NameEntry {
+        final String name;
+        int callCount;
+
+        // Position in its call count bucket
+        private int bucketSlot = -1;
+
+        NameEntry(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class Bucket {
+        final int callCount;
+        final ArrayList<NameEntry> entries = new ArrayList<>();
+
+        Bucket(int callCount) {
+            this.callCount = callCount;
+        }
+    }
+
+    private final ArrayList<NameEntry> entries = new ArrayList<>();
+    private final Map<String, NameEntry> byName = new HashMap<>();
+    private final RandomGenerator random;
+
+    // Shuffle mode cycle position in entries
+    private int nameIndex = 0;
+    private boolean fairDraw;
+
+    private final TreeMap<Integer, Bucket> buckets = new TreeMap<>();
+    private Bucket[] aliasBuckets = new Bucket[0];
+    private double[] aliasProbability = new double[0];
+    private int[] alias = new int[0];
+    private boolean aliasStale = true;
+
+    NamePool(RandomGenerator random) {
+        this.random = random;
+    }
+
+    /* ================= ROSTER ================= */
+    // Replaces the roster, keeping the call counts of names that stay on it.
+    void setRoster(Collection<String> names) {
+        Map<String, NameEntry> previous = new HashMap<>(byName);
+        entries.clear();
+        byName.clear();
+        buckets.clear();
+
+        for (String raw : names) {
+            String name = raw == null ? "" : raw.trim();
+            if (name.isEmpty() || byName.containsKey(name)) {
+                continue;
+            }
+            NameEntry entry = previous.get(name);
+            if (entry == null) {
+                entry = new NameEntry(name);
+            }
+            entries.add(entry);
+            byName.put(name, entry);
+            addToBucket(entry);
+        }
+
+        SeatRandom.shuffle(entries, random);
+        nameIndex = 0;
+        aliasStale = true;
+    }
+
+    boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    boolean isFairDraw() {
+        return fairDraw;
+    }
+
+    void setFairDraw(boolean fairDraw) {
+        this.fairDraw = fairDraw;
+    }
+
+    /* ================= DRAWING ================= */
+    // Draws the next student and counts the call, or returns null for an
+    // empty roster.
+    NameEntry next() {
+        if (entries.isEmpty()) return null;
+
+        NameEntry entry = fairDraw ? drawWeighted(buckets.firstKey()) : drawShuffled();
+        recordCall(entry);
+        return entry;
+    }
+
+    // Draws up to count different students in one go and counts their calls.
+    // Shuffle mode continues the current cycle; if it runs out part way, the
+    // students already in this batch start the new cycle as called. Fair mode
+    // samples without replacement, with weights as they were before the batch.
+    List<NameEntry> next(int count) {
+        count = Math.min(count, entries.size());
+        List<NameEntry> batch = new ArrayList<>(count);
+        if (fairDraw && count > 0) {
+            // Weighed against the fewest calls before the batch, even once
+            // those students have been drawn
+            int fewestCalls = buckets.firstKey();
+            for (int i = 0; i < count; i++) {
+                NameEntry entry = drawWeighted(fewestCalls);
+                removeFromBucket(entry);
+                batch.add(entry);
+            }
+            for (NameEntry entry : batch) {
+                entry.callCount++;
+                addToBucket(entry);
+            }
+            return batch;
+        }
+
+        for (int i = 0; i < count; i++) {
+            if (nameIndex >= entries.size()) {
+                SeatRandom.shuffle(entries, random);
+                nameIndex = 0;
+                for (NameEntry called : batch) {
+                    Collections.swap(entries, entries.indexOf(called), nameIndex++);
+                }
+            }
+            NameEntry entry = entries.get(nameIndex++);
+            recordCall(entry);
+            batch.add(entry);
+        }
+        return batch;
+    }
+
+    // Splits a batch of groupCount * groupSize students into groups, dealt one
+    // per group in turn; a groupSize of 0 splits the whole roster.
+    List<List<NameEntry>> nextGroups(int groupCount, int groupSize) {
+        List<NameEntry> batch = next(groupSize > 0 ? (int) Math.min((long) groupCount * groupSize, entries.size())
+                : entries.size());
+        List<List<NameEntry>> groups = new ArrayList<>(groupCount);
+        for (int group = 0; group < groupCount; group++) {
+            groups.add(new ArrayList<>());
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            groups.get(i % groupCount).add(batch.get(i));
+        }
+        return groups;
+    }
+
+    private NameEntry drawShuffled() {
+        if (nameIndex >= entries.size()) {
+            SeatRandom.shuffle(entries, random);
+            nameIndex = 0;
+        }
+        return entries.get(nameIndex++);
+    }
+
+    private NameEntry drawWeighted(int fewestCalls) {
+        if (aliasStale) {
+            rebuildAlias(fewestCalls);
+        }
+        int column = random.nextInt(aliasBuckets.length);
+        Bucket bucket = aliasBuckets[random.nextDouble() < aliasProbability[column] ? column : alias[column]];
+        return bucket.entries.get(random.nextInt(bucket.entries.size()));
+    }
+
+    void recordCall(NameEntry entry) {
+        removeFromBucket(entry);
+        entry.callCount++;
+        addToBucket(entry);
+    }
+
+    private static double weight(int callCount, int fewestCalls) {
+        double behind = 1 + callCount - fewestCalls;
+        return 1 / (behind * behind);
+    }
+
+    private void addToBucket(NameEntry entry) {
+        Bucket bucket = buckets.get(entry.callCount);
+        if (bucket == null) {
+            bucket = new Bucket(entry.callCount);
+            buckets.put(entry.callCount, bucket);
+        }
+        entry.bucketSlot = bucket.entries.size();
+        bucket.entries.add(entry);
+        aliasStale = true;
+    }
+
+    private void removeFromBucket(NameEntry entry) {
+        Bucket bucket = buckets.get(entry.callCount);
+        ArrayList<NameEntry> list = bucket.entries;
+        NameEntry last = list.remove(list.size() - 1);
+        if (last != entry) {
+            list.set(entry.bucketSlot, last);
+            last.bucketSlot = entry.bucketSlot;
+        }
+        entry.bucketSlot = -1;
+        if (list.isEmpty()) {
+            buckets.remove(entry.callCount);
+        }
+        aliasStale = true;
+    }
+
+    // Vose's alias method over the buckets
+    private void rebuildAlias(int fewestCalls) {
+        int count = buckets.size();
+        aliasBuckets = buckets.values().toArray(new Bucket[0]);
+        aliasProbability = new double[count];
+        alias = new int[count];
+
+        double total = 0;
+        double[] scaled = new double[count];
+        for (int i = 0; i < count; i++) {
+            scaled[i] = aliasBuckets[i].entries.size() * weight(aliasBuckets[i].callCount, fewestCalls);
+            total += scaled[i];
+        }
+
+        int[] small = new int[count];
+        int[] large = new int[count];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < count; i++) {
+            scaled[i] = scaled[i] * count / total;
+            if (scaled[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            aliasProbability[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = scaled[more] + scaled[less] - 1;
+            if (scaled[more] < 1) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        // Leftovers are 1 up to rounding
+        while (largeCount > 0) aliasProbability[large[--largeCount]] = 1;
+        while (smallCount > 0) aliasProbability[small[--smallCount]] = 1;
+
+        aliasStale = false;
+    }
+
+    /* ================= FILES ================= */
+    // One name per line; blank lines and "#" comments are skipped.
+    static java.util.List<String> readRoster(File file) throws IOException {
+        java.util.List<String> names = new ArrayList<>();
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                names.add(line);
+            }
+        }
+        return names;
+    }
+
+    // Reads "<calls>\t<name>" lines; malformed lines are skipped.
+    static Map<String, Integer> readHistory(File file) throws IOException {
+        Map<String, Integer> history = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+            int tab = line.indexOf('\t');
+            if (tab <= 0) {
+                continue;
+            }
+            try {
+                int calls = Integer.parseInt(line.substring(0, tab).trim());
+                history.put(line.substring(tab + 1).trim(), Math.max(0, calls));
+            } catch (NumberFormatException e) {
+                // Skip the line
+            }
+        }
+        return history;
+    }
+
+    // Sets the call counts of roster names found in history.
+    void applyHistory(Map<String, Integer> history) {
+        for (Map.Entry<String, Integer> saved : history.entrySet()) {
+            NameEntry entry = byName.get(saved.getKey());
+            if (entry != null && entry.callCount != saved.getValue()) {
+                removeFromBucket(entry);
+                entry.callCount = saved.getValue();
+                addToBucket(entry);
+            }
+        }
+    }
+
+    // Call counts by name, for writing off the EDT.
+    Map<String, Integer> historySnapshot() {
+        Map<String, Integer> history = new LinkedHashMap<>();
+        for (NameEntry entry : entries) {
+            history.put(entry.name, entry.callCount);
+        }
+        return history;
+    }
+
+    static void writeHistory(File file, Map<String, Integer> history) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8))) {
+            for (Map.Entry<String, Integer> entry : history.entrySet()) {
+                writer.write(entry.getValue() + "\t" + entry.getKey() + "\n");
+            }
+        }
+        try {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.*;
+
+/*
+ * Fires period change events from a BellSchedule instead of having callers
+ * poll the clock. After every event it schedules one task for the next
+ * boundary, plus one a few minutes before it when a new period is about to
+ * start. Sleeps are capped so a laptop waking from sleep, or a clock change,
+ * is noticed within a few minutes.
+ *
+ * Listeners are called on the scheduler thread.
+ */
+class PeriodScheduler {
+
+    interface Listener {
+        void periodChanged(String previous, String current);
+
+        void periodStartingSoon(String next);
+    }
+
+    private static final long MAX_SLEEP_SECONDS = 5 * 60;
+
+    private final BellSchedule schedule;
+    private final Duration lead;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "bell-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile String currentPeriod;
+    private String announcedPeriod;
+    private ScheduledFuture<?> pendingCheck;
+
+    PeriodScheduler(BellSchedule schedule, Duration lead) {
+        this.schedule = schedule;
+        this.lead = lead;
+        LocalDateTime now = LocalDateTime.now();
+        this.currentPeriod = schedule.periodAt(now.toLocalDate(), now.toLocalTime());
+    }
+
+    void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    // Period name right now, or "" between periods.
+    String getCurrentPeriod() {
+        return currentPeriod;
+    }
+
+    void start() {
+        executor.execute(this::check);
+    }
+
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    private void check() {
+        LocalDateTime now = LocalDateTime.now();
+        String period = schedule.periodAt(now.toLocalDate(), now.toLocalTime());
+        String previous = currentPeriod;
+        if (!period.equals(previous)) {
+            currentPeriod = period;
+            for (Listener listener : listeners) {
+                listener.periodChanged(previous, period);
+            }
+        }
+
+        LocalDateTime boundary = schedule.nextBoundary(now);
+        if (boundary == null) {
+            reschedule(MAX_SLEEP_SECONDS);
+            return;
+        }
+
+        String upcoming = schedule.periodAt(boundary.toLocalDate(), boundary.toLocalTime());
+        long untilBoundary = Math.max(1, Duration.between(now, boundary).getSeconds());
+        long untilLead = untilBoundary - lead.getSeconds();
+        if (!upcoming.isEmpty() && !upcoming.equals(period) && untilLead <= 0 && !upcoming.equals(announcedPeriod)) {
+            announcedPeriod = upcoming;
+            for (Listener listener : listeners) {
+                listener.periodStartingSoon(upcoming);
+            }
+        }
+
+        long delay = untilLead > 0 && !upcoming.isEmpty() ? untilLead : untilBoundary;
+        reschedule(Math.min(delay, MAX_SLEEP_SECONDS));
+    }
+
+    private void reschedule(long seconds) {
+        if (pendingCheck != null) {
+            pendingCheck.cancel(false);
+        }
+        pendingCheck = executor.schedule(this::check, seconds, TimeUnit.SECONDS);
+    }
+}
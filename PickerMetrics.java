@@ -0,0 +1,125 @@
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import javax.management.*;
+import javax.swing.SwingUtilities;
+
+/*
+ * Always-on latency instrumentation. Each histogram is registered over JMX
+ * (jconsole / VisualVM, under RandomSeatPicker:type=Latency), and once a
+ * minute the counts for the past minute are appended to a rolling log, so a
+ * hitch in class can be looked up afterwards.
+ *
+ * EDT latency comes from a probe posted to the event queue every 250 ms:
+ * the time until it runs is how long any click would have waited. The probe
+ * alone doesn't make a log line unless it saw a hitch, so an idle app
+ * leaves the (usually synced) log file alone.
+ */
+class PickerMetrics {
+
+    static final LatencyHistogram EDT_LATENCY = new LatencyHistogram("edt.latency");
+    static final LatencyHistogram DRAW_SEAT = new LatencyHistogram("draw.seat");
+    static final LatencyHistogram DRAW_NAME = new LatencyHistogram("draw.name");
+    static final LatencyHistogram CHART_LOAD = new LatencyHistogram("chart.load");
+    static final LatencyHistogram CHART_SAVE = new LatencyHistogram("chart.save");
+    static final LatencyHistogram CHART_WRITE = new LatencyHistogram("chart.write");
+    static final LatencyHistogram ATTENDANCE_EXPORT = new LatencyHistogram("attendance.export");
+    static final LatencyHistogram SEAT_MANAGER_MODE = new LatencyHistogram("seatManager.mode");
+    // Includes building the seat grids, which happens when the window opens
+    static final LatencyHistogram SEAT_MANAGER_OPEN = new LatencyHistogram("seatManager.open");
+
+    private static final LatencyHistogram[] ALL = {
+            EDT_LATENCY, DRAW_SEAT, DRAW_NAME, CHART_LOAD, CHART_SAVE, CHART_WRITE,
+            ATTENDANCE_EXPORT, SEAT_MANAGER_MODE, SEAT_MANAGER_OPEN
+    };
+
+    private static final long EDT_PROBE_MS = 250;
+    private static final long LOG_INTERVAL_SECONDS = 60;
+    private static final long MAX_LOG_BYTES = 1 << 20;
+    private static final long EDT_HITCH_NANOS = 100_000_000L;
+    private static final DateTimeFormatter LOG_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private static final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "picker-metrics");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static boolean started;
+
+    private PickerMetrics() {
+    }
+
+    static synchronized void start(File logFile) {
+        if (started) {
+            return;
+        }
+        started = true;
+
+        registerMBeans();
+        for (LatencyHistogram histogram : ALL) {
+            histogram.takeInterval();
+        }
+
+        executor.scheduleWithFixedDelay(() -> {
+            long posted = System.nanoTime();
+            SwingUtilities.invokeLater(() -> EDT_LATENCY.recordSince(posted));
+        }, EDT_PROBE_MS, EDT_PROBE_MS, TimeUnit.MILLISECONDS);
+        executor.scheduleAtFixedRate(() -> appendLog(logFile),
+                LOG_INTERVAL_SECONDS, LOG_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (LatencyHistogram histogram : ALL) {
+            try {
+                ObjectName objectName = new ObjectName("RandomSeatPicker:type=Latency,name=" + histogram.getName());
+                if (!server.isRegistered(objectName)) {
+                    server.registerMBean(new StandardMBean(histogram, LatencyHistogramMXBean.class, true), objectName);
+                }
+            } catch (JMException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /* ================= ROLLING LOG ================= */
+    // One line per histogram that saw activity in the past interval:
+    //   <time> <name> n=<count> mean=<us> p50=<us> p99=<us> max=<us>
+    private static void appendLog(File logFile) {
+        StringBuilder lines = new StringBuilder();
+        String time = LocalDateTime.now().format(LOG_TIME);
+        boolean active = false;
+        for (LatencyHistogram histogram : ALL) {
+            LatencyHistogram.Snapshot interval = histogram.takeInterval();
+            long max = histogram.takeIntervalMaxNanos();
+            if (interval.count == 0) {
+                continue;
+            }
+            active |= histogram != EDT_LATENCY || max >= EDT_HITCH_NANOS;
+            lines.append(String.format(Locale.ROOT, "%s %s n=%d mean=%.0f p50=%d p99=%d max=%d%n",
+                    time, histogram.getName(), interval.count, interval.meanNanos() / 1000,
+                    interval.percentileNanos(50) / 1000, interval.percentileNanos(99) / 1000, max / 1000));
+        }
+        if (!active) {
+            return;
+        }
+
+        try {
+            if (logFile.length() > MAX_LOG_BYTES) {
+                File previous = new File(logFile.getPath() + ".1");
+                previous.delete();
+                logFile.renameTo(previous);
+            }
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(logFile, true), StandardCharsets.UTF_8)) {
+                writer.write(lines.toString());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/*
+ * Immutable room layout. A layout file describes the room front to back, one
+ * grid row per line, with whitespace separated cells:
+ *
+ *   A4 A3 A2 A1 | F1 F2 F3 F4     seat ids, "|" for an aisle
+ *   E1-4 | . . . .                "E1-4" expands to E1 E2 E3 E4, "." is a gap
+ *
+ * Blank lines and lines starting with "#" are ignored. Seats are numbered in
+ * reading order once, and every grid, pool and chart reads from that index.
+ */
+class RoomLayout {
+
+    static final int GAP = -1;
+    static final int AISLE = -2;
+
+    private static final String DEFAULT_LAYOUT =
+            "A4-1 | F1-4\n" +
+            "B4-1 | G1-4\n" +
+            "C4-1 | H1-4\n" +
+            "D4-1 | I1-4\n" +
+            "E4-1 | . . . .\n";
+
+    private final int rows;
+    private final int columns;
+    private final int[] cells;
+    private final String[] seatIds;
+    private final int[] seatRows;
+    private final int[] seatColumns;
+    private final Map<String, Integer> seatIndex;
+
+    private RoomLayout(List<List<String>> grid) throws IOException {
+        int width = 0;
+        for (List<String> row : grid) {
+            width = Math.max(width, row.size());
+        }
+
+        rows = grid.size();
+        columns = width;
+        cells = new int[rows * columns];
+        Arrays.fill(cells, GAP);
+
+        List<String> ids = new ArrayList<>();
+        Map<String, Integer> index = new HashMap<>();
+        for (int r = 0; r < rows; r++) {
+            List<String> row = grid.get(r);
+            for (int c = 0; c < row.size(); c++) {
+                String token = row.get(c);
+                if (token.equals(".")) {
+                    continue;
+                }
+                if (token.equals("|")) {
+                    cells[r * columns + c] = AISLE;
+                    continue;
+                }
+                if (index.putIfAbsent(token, ids.size()) != null) {
+                    throw new IOException("Duplicate seat " + token + " in row " + (r + 1));
+                }
+                cells[r * columns + c] = ids.size();
+                ids.add(token);
+            }
+        }
+
+        seatIds = ids.toArray(new String[0]);
+        seatRows = new int[seatIds.length];
+        seatColumns = new int[seatIds.length];
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] >= 0) {
+                seatRows[cells[i]] = i / columns;
+                seatColumns[cells[i]] = i % columns;
+            }
+        }
+        seatIndex = Collections.unmodifiableMap(index);
+    }
+
+    /* ================= LOADING ================= */
+    static RoomLayout defaultLayout() {
+        try {
+            return parse(new StringReader(DEFAULT_LAYOUT));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static RoomLayout load(File file) throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    static RoomLayout parse(Reader reader) throws IOException {
+        BufferedReader br = new BufferedReader(reader);
+        List<List<String>> grid = new ArrayList<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = br.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            List<String> row = new ArrayList<>();
+            for (String token : line.split("\\s+")) {
+                expandToken(token, row, lineNumber);
+            }
+            grid.add(row);
+        }
+
+        if (grid.isEmpty()) {
+            throw new IOException("Layout has no rows");
+        }
+        return new RoomLayout(grid);
+    }
+
+    // "B4-1" -> B4 B3 B2 B1; anything else is taken literally.
+    private static void expandToken(String token, List<String> row, int lineNumber) throws IOException {
+        int dash = token.indexOf('-');
+        if (dash <= 0 || dash == token.length() - 1) {
+            row.add(token);
+            return;
+        }
+
+        int digits = dash;
+        while (digits > 0 && Character.isDigit(token.charAt(digits - 1))) {
+            digits--;
+        }
+        String end = token.substring(dash + 1);
+        if (digits == dash || !end.chars().allMatch(Character::isDigit)) {
+            row.add(token);
+            return;
+        }
+
+        String prefix = token.substring(0, digits);
+        int from;
+        int to;
+        try {
+            from = Integer.parseInt(token.substring(digits, dash));
+            to = Integer.parseInt(end);
+        } catch (NumberFormatException e) {
+            throw new IOException("Seat number in " + token + " is too large on line " + lineNumber);
+        }
+        if (Math.abs((long) to - from) > 10_000) {
+            throw new IOException("Seat range " + token + " is too large on line " + lineNumber);
+        }
+        int step = from <= to ? 1 : -1;
+        for (int n = from; n != to + step; n += step) {
+            row.add(prefix + n);
+        }
+    }
+
+    /* ================= GRID ================= */
+    int rows() {
+        return rows;
+    }
+
+    int columns() {
+        return columns;
+    }
+
+    // Seat id at the given grid cell, or GAP / AISLE.
+    int cellAt(int row, int column) {
+        return cells[row * columns + column];
+    }
+
+    int seatRow(int id) {
+        return seatRows[id];
+    }
+
+    int seatColumn(int id) {
+        return seatColumns[id];
+    }
+
+    /* ================= SEAT INDEX ================= */
+    int seatCount() {
+        return seatIds.length;
+    }
+
+    String seatId(int id) {
+        return seatIds[id];
+    }
+
+    int indexOf(String seat) {
+        Integer id = seatIndex.get(seat);
+        return id == null ? -1 : id;
+    }
+
+    // FNV-1a hash of the seat ids in index order; saved state keyed by seat
+    // index is only valid for a layout with the same fingerprint.
+    long fingerprint() {
+        long hash = 0xcbf29ce484222325L;
+        for (String seat : seatIds) {
+            for (int i = 0; i < seat.length(); i++) {
+                hash = (hash ^ seat.charAt(i)) * 0x100000001b3L;
+            }
+            hash = (hash ^ '\n') * 0x100000001b3L;
+        }
+        return hash;
+    }
+}
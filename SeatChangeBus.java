@@ -0,0 +1,59 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import javax.swing.SwingUtilities;
+
+/*
+ * Seat change notifications, coalesced per EDT event. Code that changes a
+ * seat's name or state marks the seat; the first mark schedules one dispatch
+ * with invokeLater, and listeners then get every seat marked since the last
+ * dispatch, once each, however many times it changed. A view refreshes only
+ * those seats instead of looping over the whole room.
+ *
+ * EDT only.
+ */
+class SeatChangeBus {
+
+    interface Listener {
+        // changed must not be kept or modified after the call returns
+        void seatsChanged(BitSet changed);
+    }
+
+    private final BitSet dirty;
+    private final List<Listener> listeners = new ArrayList<>();
+    private boolean scheduled;
+
+    SeatChangeBus(int seatCount) {
+        dirty = new BitSet(seatCount);
+    }
+
+    void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    void seatChanged(int seat) {
+        dirty.set(seat);
+        schedule();
+    }
+
+    void seatsChanged(BitSet seats) {
+        dirty.or(seats);
+        schedule();
+    }
+
+    private void schedule() {
+        if (!scheduled && !dirty.isEmpty()) {
+            scheduled = true;
+            SwingUtilities.invokeLater(this::dispatch);
+        }
+    }
+
+    private void dispatch() {
+        scheduled = false;
+        BitSet changed = (BitSet) dirty.clone();
+        dirty.clear();
+        for (Listener listener : listeners) {
+            listener.seatsChanged(changed);
+        }
+    }
+}
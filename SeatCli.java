@@ -0,0 +1,417 @@
+import java.io.*;
+import java.time.LocalDate;
+import java.util.*;
+
+/*
+ * Command line entry point for scripts and end-of-day batch jobs. It runs
+ * the chart, draw and export code directly and never touches Main, so no
+ * AWT or Swing class is loaded and startup is just the JVM's own.
+ *
+ *   java SeatCli pick [--save] [--seed hex] <P<n>_seats.csv> [count]
+ *   java SeatCli randomize [--seed hex] <chart.csv | dir>...
+ *   java SeatCli export [--format text|csv|json|sis] [--combined] [--out dir]
+ *                       [--date yyyy-mm-dd] <chart.csv | dir>...
+ *   java SeatCli convert <chart.csv | dir>...
+ *   java SeatCli attendance [--from date] [--to date] [--period P<n>]
+ *                           [--absent n | --tardy n] [--student name] <dir | history file>
+ *   java SeatCli import <Attendence_<date>_P<n>.txt | dir>... <dir | history file>
+ *
+ * Options for every command: --layout <room_layout.txt> (default: the
+ * built-in room). A directory argument means every P<n>_seats.csv in it.
+ * Charts are read like the app reads them at startup: snapshot or CSV, plus
+ * any unsaved journal edits. Anything written also truncates the journal,
+ * so these commands shouldn't run on a period that is open in the app.
+ *
+ * --seed is a session seed as written to draw_log.txt; the same seed and
+ * chart give the same picks and shuffles as that session in the app.
+ * Without one a new seed is used and printed to stderr.
+ *
+ * export writes each chart's attendance next to it (or to --out), exporting
+ * the charts of a directory concurrently; --combined writes one
+ * Attendence_<date>_all file per directory instead.
+ *
+ * attendance queries attendance_history.log: totals per student, students
+ * absent or tardy at least n times across all periods, or one student's
+ * marks. Dates default to the whole history. import appends old exported
+ * attendance files to the history, the last argument.
+ *
+ * Exit status: 0 on success, 1 if any chart failed, 2 for bad usage.
+ */
+class SeatCli {
+
+    private static final String USAGE =
+            "usage: SeatCli [--layout file] pick [--save] [--seed hex] <chart.csv> [count]\n" +
+            "       SeatCli [--layout file] randomize [--seed hex] <chart.csv | dir>...\n" +
+            "       SeatCli [--layout file] export [--format text|csv|json|sis] [--combined] [--out dir]\n" +
+            "                               [--date yyyy-mm-dd] <chart.csv | dir>...\n" +
+            "       SeatCli [--layout file] convert <chart.csv | dir>...\n" +
+            "       SeatCli attendance [--from date] [--to date] [--period P<n>]\n" +
+            "                          [--absent n | --tardy n] [--student name] <dir | history file>\n" +
+            "       SeatCli import <Attendence_<date>_P<n>.txt | dir>... <dir | history file>";
+
+    private static final class UsageException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        UsageException(String message) {
+            super(message);
+        }
+    }
+
+    private RoomLayout layout = RoomLayout.defaultLayout();
+    private SeatRandom seatRandom;
+    private final Map<String, String> options = new HashMap<>();
+    private final Set<String> flags = new HashSet<>();
+    private final java.util.List<String> arguments = new ArrayList<>();
+    private final PrintStream out;
+    private int failures;
+
+    SeatCli(PrintStream out) {
+        this.out = out;
+    }
+
+    public static void main(String[] args) {
+        System.exit(new SeatCli(System.out).run(args));
+    }
+
+    int run(String[] args) {
+        try {
+            if (args.length == 0) {
+                throw new UsageException("missing command");
+            }
+            String command = parseArguments(args);
+            if (options.containsKey("layout")) {
+                layout = RoomLayout.load(new File(options.get("layout")));
+            }
+            if (options.containsKey("seed")) {
+                try {
+                    seatRandom = new SeatRandom(SeatRandom.parseSeed(options.get("seed")));
+                } catch (NumberFormatException e) {
+                    throw new UsageException("bad seed " + options.get("seed"));
+                }
+            } else if (command.equals("pick") || command.equals("randomize")) {
+                seatRandom = SeatRandom.fromSystemProperty();
+                System.err.println("seed " + SeatRandom.formatSeed(seatRandom.getSessionSeed()));
+            }
+
+            switch (command) {
+                case "pick":
+                    pick();
+                    break;
+                case "randomize":
+                    forEachChart(this::randomize);
+                    break;
+                case "export":
+                    export();
+                    break;
+                case "convert":
+                    forEachChart(this::convert);
+                    break;
+                case "attendance":
+                    attendance();
+                    break;
+                case "import":
+                    importAttendance();
+                    break;
+                default:
+                    throw new UsageException("unknown command " + command);
+            }
+            return failures == 0 ? 0 : 1;
+        } catch (UsageException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            return 1;
+        }
+    }
+
+    // Returns the command; everything else goes into options, flags and arguments
+    private String parseArguments(String[] args) throws UsageException {
+        String command = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--save") || arg.equals("--combined")) {
+                flags.add(arg.substring(2));
+            } else if (arg.startsWith("--")) {
+                if (i + 1 >= args.length) {
+                    throw new UsageException("missing value for " + arg);
+                }
+                options.put(arg.substring(2), args[++i]);
+            } else if (command == null) {
+                command = arg;
+            } else {
+                arguments.add(arg);
+            }
+        }
+        if (command == null) {
+            throw new UsageException("missing command");
+        }
+        return command;
+    }
+
+    /* ================= COMMANDS ================= */
+    interface ChartCommand {
+        void run(File chartFile) throws IOException;
+    }
+
+    private void forEachChart(ChartCommand command) throws UsageException {
+        for (File chart : chartArguments()) {
+            try {
+                command.run(chart);
+            } catch (IOException | RuntimeException e) {
+                failures++;
+                System.err.println(chart + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private java.util.List<File> chartArguments() throws UsageException {
+        java.util.List<File> charts = new ArrayList<>();
+        for (String argument : arguments) {
+            File file = new File(argument);
+            if (file.isDirectory()) {
+                charts.addAll(periodCharts(file));
+            } else {
+                charts.add(file);
+            }
+        }
+        if (charts.isEmpty()) {
+            throw new UsageException("no charts given");
+        }
+        return charts;
+    }
+
+    // P<n>_seats.csv files in the directory, in period order
+    static java.util.List<File> periodCharts(File directory) {
+        File[] files = directory.listFiles((dir, name) -> ChartCache.periodTagOf(name) != null);
+        java.util.List<File> charts = new ArrayList<>(files == null ? Collections.emptyList() : Arrays.asList(files));
+        charts.sort(Comparator.comparing(File::getName));
+        return charts;
+    }
+
+    private ChartSnapshot readChart(File chartFile) throws IOException {
+        return readChart(chartFile, LocalDate.now());
+    }
+
+    // The chart as it stands on the given day: tardy marks from earlier days dropped
+    private ChartSnapshot readChart(File chartFile, LocalDate day) throws IOException {
+        if (!chartFile.isFile()) {
+            throw new FileNotFoundException("no such chart");
+        }
+        ChartCache.PeriodChart periodChart = ChartCache.readPeriodChart(chartFile, layout);
+        periodChart.dropStaleTardy(day);
+        return periodChart.snapshot;
+    }
+
+    // Draws like the Pick Seat button, continuing the chart's saved cycle;
+    // --save keeps the cycle for the next pick.
+    private void pick() throws IOException, UsageException {
+        if (arguments.isEmpty() || arguments.size() > 2) {
+            throw new UsageException("pick takes a chart and an optional count");
+        }
+        int count;
+        try {
+            count = arguments.size() > 1 ? Integer.parseInt(arguments.get(1)) : 1;
+        } catch (NumberFormatException e) {
+            throw new UsageException("bad count " + arguments.get(1));
+        }
+        if (count < 1) {
+            throw new UsageException("count must be at least 1");
+        }
+
+        File chartFile = new File(arguments.get(0));
+        ChartSnapshot snapshot = readChart(chartFile);
+        ChartData chart = snapshot.getChart();
+        String tag = ChartCache.periodTagOf(chartFile.getName());
+        SeatDrawEngine engine = new SeatDrawEngine(layout,
+                seatRandom.streamFor(SeatRandom.roomKey(layout), tag != null ? tag : "none", "seats"));
+        for (int seat = 0; seat < chart.seatCount(); seat++) {
+            engine.setDisabled(seat, chart.isDisabled(seat));
+            engine.setTardy(seat, chart.isTardy(seat));
+        }
+        engine.reset();
+        snapshot.restorePool(engine);
+
+        int[] seats = new int[Math.min(count, engine.poolSize())];
+        int drawn = engine.next(seats, seats.length);
+        for (int i = 0; i < drawn; i++) {
+            String name = chart.getName(seats[i]);
+            out.println(layout.seatId(seats[i]) + (name != null ? "\t" + name : ""));
+        }
+
+        if (flags.contains("save")) {
+            SeatJournal.writeCompacted(chartFile, ChartSnapshot.capture(chart, engine));
+        }
+    }
+
+    private void randomize(File chartFile) throws IOException {
+        ChartData chart = readChart(chartFile).getChart();
+        String tag = ChartCache.periodTagOf(chartFile.getName());
+        SplittableRandom random = seatRandom.streamFor(SeatRandom.roomKey(layout), tag != null ? tag : "none", "randomize");
+
+        File constraintsFile = new File(chartFile.getAbsoluteFile().getParentFile(), tag + "_constraints.txt");
+        String result = "randomized";
+        if (tag != null && constraintsFile.isFile()) {
+            int penalty = SeatingSolver.solve(chart, SeatingConstraints.load(constraintsFile), random,
+                    SeatingSolver.DEFAULT_BUDGET_MILLIS);
+            result += ", constraint penalty " + penalty;
+        } else {
+            chart.randomize(random);
+        }
+        // Reported only once written; a failed write throws and counts as a failure
+        SeatJournal.writeCompacted(chartFile, ChartSnapshot.of(chart));
+        out.println(chartFile + ": " + result);
+    }
+
+    // Writes Attendence_<date>_P<n>.<ext>, the name the app suggests, with
+    // each directory's charts exported together
+    private void export() throws UsageException {
+        AttendanceExporter exporter = AttendanceExporter.forName(options.getOrDefault("format", "text"));
+        if (exporter == null) {
+            throw new UsageException("unknown format " + options.get("format"));
+        }
+        LocalDate date = dateOption("date", LocalDate.now());
+
+        Map<File, Map<String, File>> directories = new LinkedHashMap<>();
+        for (File chartFile : chartArguments()) {
+            String tag = ChartCache.periodTagOf(chartFile.getName());
+            String period = tag != null ? tag : chartFile.getName().replaceFirst("(_seats)?\\.csv$", "");
+            directories.computeIfAbsent(chartFile.getAbsoluteFile().getParentFile(), dir -> new LinkedHashMap<>())
+                    .put(period, chartFile);
+        }
+
+        for (Map.Entry<File, Map<String, File>> directory : directories.entrySet()) {
+            Map<String, File> charts = directory.getValue();
+            File outDir = options.containsKey("out") ? new File(options.get("out")) : directory.getKey();
+            java.util.List<AttendanceBatch.Result> results = AttendanceBatch.export(new ArrayList<>(charts.keySet()),
+                    period -> readChart(charts.get(period), date).getChart(), exporter, date, outDir, flags.contains("combined"));
+            for (AttendanceBatch.Result result : results) {
+                File chartFile = charts.getOrDefault(result.period, directory.getKey());
+                if (result.error != null) {
+                    failures++;
+                    System.err.println(chartFile + ": " + result.error.getMessage());
+                } else {
+                    out.println(chartFile + ": wrote " + result.file);
+                }
+            }
+        }
+    }
+
+    // Rewrites the chart in the current format with its journal folded in
+    private void convert(File chartFile) throws IOException {
+        SeatJournal.writeCompacted(chartFile, readChart(chartFile));
+        out.println(chartFile + ": converted to version " + ChartCodec.VERSION);
+    }
+
+    /* ================= ATTENDANCE HISTORY ================= */
+    private static File historyFile(String argument) {
+        File file = new File(argument);
+        return file.isDirectory() ? AttendanceStore.fileIn(file) : file;
+    }
+
+    private void attendance() throws IOException, UsageException {
+        if (arguments.size() != 1) {
+            throw new UsageException("attendance takes the history file or its directory");
+        }
+        // Read-only, so a query can run while the app is appending
+        AttendanceStore store = AttendanceStore.openReadOnly(historyFile(arguments.get(0)));
+        if (store.firstDate() == null) {
+            return;
+        }
+        LocalDate from = dateOption("from", store.firstDate());
+        LocalDate to = dateOption("to", store.lastDate());
+
+        if (options.containsKey("student")) {
+            for (AttendanceStore.Entry entry : store.history(options.get("student"), from, to)) {
+                out.println(entry.date + "\t" + entry.period + "\t" + entry.status.name().toLowerCase(Locale.ROOT));
+            }
+            return;
+        }
+
+        Map<String, AttendanceStore.Tally> tallies;
+        if (options.containsKey("absent") || options.containsKey("tardy")) {
+            AttendanceStore.Status status = options.containsKey("absent")
+                    ? AttendanceStore.Status.ABSENT : AttendanceStore.Status.TARDY;
+            tallies = new LinkedHashMap<>();
+            for (Map.Entry<String, AttendanceStore.Tally> entry
+                    : store.atLeast(status, countOption(status.name().toLowerCase(Locale.ROOT)), from, to)) {
+                tallies.put(entry.getKey(), entry.getValue());
+            }
+        } else {
+            tallies = store.tally(from, to, options.get("period"));
+        }
+
+        out.println("Name\tAbsent\tTardy\tPresent");
+        for (Map.Entry<String, AttendanceStore.Tally> entry : tallies.entrySet()) {
+            AttendanceStore.Tally tally = entry.getValue();
+            out.println(entry.getKey() + "\t" + tally.absent + "\t" + tally.tardy + "\t" + tally.present);
+        }
+    }
+
+    private LocalDate dateOption(String name, LocalDate fallback) throws UsageException {
+        try {
+            return options.containsKey(name) ? LocalDate.parse(options.get(name)) : fallback;
+        } catch (java.time.format.DateTimeParseException e) {
+            throw new UsageException("bad date " + options.get(name));
+        }
+    }
+
+    private int countOption(String name) throws UsageException {
+        try {
+            return Integer.parseInt(options.get(name));
+        } catch (NumberFormatException e) {
+            throw new UsageException("bad count " + options.get(name));
+        }
+    }
+
+    // Appends old Attendence_<date>_P<n>.txt exports, oldest first
+    private void importAttendance() throws IOException, UsageException {
+        if (arguments.size() < 2) {
+            throw new UsageException("import takes attendance files and the history file or its directory");
+        }
+        java.util.List<File> exports = new ArrayList<>();
+        for (String argument : arguments.subList(0, arguments.size() - 1)) {
+            File file = new File(argument);
+            if (file.isDirectory()) {
+                File[] files = file.listFiles((dir, name) -> exportDateOf(name) != null);
+                exports.addAll(files == null ? Collections.emptyList() : Arrays.asList(files));
+            } else {
+                exports.add(file);
+            }
+        }
+        exports.sort(Comparator.comparing(File::getName));
+
+        AttendanceStore store = AttendanceStore.open(historyFile(arguments.get(arguments.size() - 1)));
+        for (File export : exports) {
+            String name = export.getName();
+            LocalDate date = exportDateOf(name);
+            if (date == null) {
+                failures++;
+                System.err.println(export + ": not an Attendence_<date>_P<n>.txt file");
+                continue;
+            }
+            try {
+                String period = name.substring("Attendence_yyyy-mm-dd_".length(), name.length() - ".txt".length());
+                store.record(date, period, AttendanceReport.readText(export));
+                out.println(export + ": imported");
+            } catch (IOException e) {
+                failures++;
+                System.err.println(export + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // The date in an Attendence_<date>_P<n>.txt name, or null for any other name
+    static LocalDate exportDateOf(String fileName) {
+        if (!fileName.startsWith("Attendence_") || !fileName.endsWith(".txt")
+                || fileName.length() <= "Attendence_yyyy-mm-dd_.txt".length()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(fileName.substring("Attendence_".length(), "Attendence_yyyy-mm-dd".length()));
+        } catch (java.time.format.DateTimeParseException e) {
+            return null;
+        }
+    }
+}
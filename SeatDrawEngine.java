@@ -0,0 +1,310 @@
+import java.util.BitSet;
+import java.util.random.RandomGenerator;
+
+/*
+ * Headless seat draw engine. Seats are addressed by their RoomLayout id; seat
+ * state lives in bitsets and draws come from a pre-allocated int[] pool using
+ * an in-place Fisher-Yates cursor, so drawing never allocates.
+ *
+ * Enabling or disabling a seat updates the pool in place in O(1) through a
+ * seat -> pool slot index, so attendance edits keep the current cycle: seats
+ * already drawn stay drawn and a newly enabled seat joins the undrawn ones.
+ */
+class SeatDrawEngine {
+
+    private final RoomLayout layout;
+
+    private final BitSet disabled;
+    private final BitSet tardy;
+
+    // pool[0, cursor) has been drawn this cycle, pool[cursor, poolSize) has not
+    private final int[] pool;
+    private int poolSize = 0;
+    private int cursor = 0;
+
+    // Pool slot of each seat, or -1 for a disabled seat
+    private final int[] position;
+    // Seats drawn this cycle, including ones disabled since; a seat
+    // re-enabled in the same cycle goes back to the drawn side
+    private final BitSet drawn;
+
+    private RandomGenerator random;
+
+    SeatDrawEngine(RoomLayout layout) {
+        this(layout, new java.util.SplittableRandom());
+    }
+
+    SeatDrawEngine(RoomLayout layout, RandomGenerator random) {
+        this.layout = layout;
+        this.random = random;
+        disabled = new BitSet(layout.seatCount());
+        tardy = new BitSet(layout.seatCount());
+        pool = new int[layout.seatCount()];
+        position = new int[layout.seatCount()];
+        drawn = new BitSet(layout.seatCount());
+        reset();
+    }
+
+    /* ================= SEAT IDS ================= */
+    int seatCount() {
+        return layout.seatCount();
+    }
+
+    int indexOf(String seat) {
+        return layout.indexOf(seat);
+    }
+
+    String seatId(int id) {
+        return layout.seatId(id);
+    }
+
+    /* ================= SEAT STATE ================= */
+    boolean isDisabled(int id) {
+        return disabled.get(id);
+    }
+
+    boolean isDisabled(String seat) {
+        int id = indexOf(seat);
+        return id >= 0 && disabled.get(id);
+    }
+
+    void setDisabled(int id, boolean value) {
+        if (value == disabled.get(id)) return;
+        disabled.set(id, value);
+        if (value) {
+            removeFromPool(id);
+        } else {
+            addToPool(id);
+        }
+    }
+
+    void setDisabled(String seat, boolean value) {
+        int id = indexOf(seat);
+        if (id >= 0) {
+            setDisabled(id, value);
+        }
+    }
+
+    // Disables from and enables to in one step, handing from's pool slot to
+    // to. Used when a student moves seats so they keep their place in the
+    // cycle. from must be enabled and to disabled.
+    void moveSeat(int from, int to) {
+        if (disabled.get(from) || !disabled.get(to)) {
+            setDisabled(from, true);
+            setDisabled(to, false);
+            return;
+        }
+
+        int slot = position[from];
+        pool[slot] = to;
+        position[to] = slot;
+        position[from] = -1;
+        disabled.set(from);
+        disabled.clear(to);
+        drawn.set(to, drawn.get(from));
+        drawn.clear(from);
+    }
+
+    boolean isTardy(int id) {
+        return tardy.get(id);
+    }
+
+    boolean isTardy(String seat) {
+        int id = indexOf(seat);
+        return id >= 0 && tardy.get(id);
+    }
+
+    void setTardy(int id, boolean value) {
+        tardy.set(id, value);
+    }
+
+    void setTardy(String seat, boolean value) {
+        int id = indexOf(seat);
+        if (id >= 0) {
+            tardy.set(id, value);
+        }
+    }
+
+    // Exchanges two enabled seats' pool slots, for when their students swap.
+    void swapSeats(int a, int b) {
+        if (disabled.get(a) || disabled.get(b)) return;
+
+        int slotA = position[a];
+        place(a, position[b]);
+        place(b, slotA);
+        boolean drawnA = drawn.get(a);
+        drawn.set(a, drawn.get(b));
+        drawn.set(b, drawnA);
+    }
+
+    void clearDisabled() {
+        for (int id = disabled.nextSetBit(0); id >= 0; id = disabled.nextSetBit(id + 1)) {
+            disabled.clear(id);
+            addToPool(id);
+        }
+    }
+
+    void clearTardy() {
+        tardy.clear();
+    }
+
+    /* ================= DRAWING ================= */
+    // Refills the pool with every enabled seat and starts a new cycle.
+    void reset() {
+        poolSize = 0;
+        java.util.Arrays.fill(position, -1);
+        for (int id = disabled.nextClearBit(0); id < layout.seatCount(); id = disabled.nextClearBit(id + 1)) {
+            position[id] = poolSize;
+            pool[poolSize++] = id;
+        }
+        cursor = 0;
+        drawn.clear();
+    }
+
+    // Returns the next seat id, or -1 when every seat is disabled. A new cycle
+    // starts automatically once every enabled seat has been drawn.
+    int next() {
+        if (poolSize == 0) return -1;
+        if (cursor >= poolSize) {
+            cursor = 0;
+            drawn.clear();
+        }
+        return drawAt(cursor + random.nextInt(poolSize - cursor));
+    }
+
+    // Draws up to count distinct seats into out and returns how many were
+    // drawn (fewer only when fewer seats are enabled). Draws continue the
+    // current cycle like repeated next() calls; if the cycle runs out part
+    // way, seats already in this batch count as drawn in the new cycle so
+    // nobody comes up twice in one batch.
+    int next(int[] out, int count) {
+        count = Math.min(count, poolSize);
+        for (int i = 0; i < count; i++) {
+            if (cursor >= poolSize) {
+                cursor = 0;
+                drawn.clear();
+                for (int j = 0; j < i; j++) {
+                    drawAt(position[out[j]]);
+                }
+            }
+            out[i] = drawAt(cursor + random.nextInt(poolSize - cursor));
+        }
+        return count;
+    }
+
+    // Deals a batch of groupCount * groupSize seats into groups, one seat per
+    // group in turn. A groupSize of 0 splits every enabled seat as evenly as
+    // possible. Groups come out short when there aren't enough seats.
+    int[][] nextGroups(int groupCount, int groupSize) {
+        long total = groupSize > 0 ? (long) groupCount * groupSize : poolSize;
+        int[] batch = new int[(int) Math.min(total, poolSize)];
+        int drawnCount = next(batch, batch.length);
+
+        int[][] groups = new int[groupCount][];
+        for (int group = 0; group < groupCount; group++) {
+            groups[group] = new int[(drawnCount - group + groupCount - 1) / groupCount];
+        }
+        for (int i = 0; i < drawnCount; i++) {
+            groups[i % groupCount][i / groupCount] = batch[i];
+        }
+        return groups;
+    }
+
+    // Moves the seat in slot to the cursor and marks it drawn
+    private int drawAt(int slot) {
+        int seat = pool[slot];
+        place(pool[cursor], slot);
+        place(seat, cursor++);
+        drawn.set(seat);
+        return seat;
+    }
+
+    private void place(int id, int slot) {
+        pool[slot] = id;
+        position[id] = slot;
+    }
+
+    // Fills the seat's slot from the end of its region; a drawn seat's hole
+    // is filled from the last drawn slot, which is in turn filled from the
+    // end of the pool.
+    private void removeFromPool(int id) {
+        int slot = position[id];
+        if (slot < 0) return;
+        position[id] = -1;
+
+        if (slot < cursor) {
+            cursor--;
+            if (slot != cursor) place(pool[cursor], slot);
+            slot = cursor;
+        }
+        poolSize--;
+        if (slot != poolSize) place(pool[poolSize], slot);
+    }
+
+    // Appends to the undrawn region, or to the drawn region if the seat was
+    // already drawn earlier in this cycle.
+    private void addToPool(int id) {
+        if (position[id] >= 0) return;
+
+        int slot = poolSize++;
+        if (drawn.get(id)) {
+            if (cursor != slot) place(pool[cursor], slot);
+            slot = cursor++;
+        }
+        place(id, slot);
+    }
+
+    // Draws from here on come from random; the pool itself is unchanged.
+    void setRandom(RandomGenerator random) {
+        this.random = random;
+    }
+
+    int poolSize() {
+        return poolSize;
+    }
+
+    int remaining() {
+        return poolSize - cursor;
+    }
+
+    /* ================= POOL STATE ================= */
+    int cursor() {
+        return cursor;
+    }
+
+    // Copies the pool order into out, which must hold seatCount() ints.
+    int copyPool(int[] out) {
+        System.arraycopy(pool, 0, out, 0, poolSize);
+        return poolSize;
+    }
+
+    // Restores a saved draw cycle. The saved pool must hold exactly the
+    // enabled seats; anything else (a stale or edited snapshot) starts a
+    // fresh cycle instead.
+    boolean restorePool(int[] saved, int size, int savedCursor) {
+        if (size != seatCount() - disabled.cardinality() || savedCursor < 0 || savedCursor > size) {
+            reset();
+            return false;
+        }
+
+        BitSet seen = new BitSet(seatCount());
+        for (int i = 0; i < size; i++) {
+            int id = saved[i];
+            if (id < 0 || id >= seatCount() || disabled.get(id) || seen.get(id)) {
+                reset();
+                return false;
+            }
+            seen.set(id);
+        }
+
+        java.util.Arrays.fill(position, -1);
+        drawn.clear();
+        for (int i = 0; i < size; i++) {
+            place(saved[i], i);
+            if (i < savedCursor) drawn.set(saved[i]);
+        }
+        poolSize = size;
+        cursor = savedCursor;
+        return true;
+    }
+}
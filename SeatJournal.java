@@ -0,0 +1,207 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32;
+
+/*
+ * Append-only journal of seat changes for the period's autosave chart,
+ * P<n>_seats.journal next to P<n>_seats.csv. Each record is the full state
+ * of one seat, so replaying the journal over the last saved chart restores
+ * every edit made since, in order.
+ *
+ * record() and flush() run on the EDT: records are batched in memory and
+ * flush() hands the batch to the I/O thread, which appends and fsyncs it.
+ * compact() writes the whole chart and truncates the journal. Because all
+ * batches are handed over on the EDT and the I/O thread is FIFO, a batch is
+ * never truncated away unless the compacted chart already contains it. The
+ * chart write is queued with ChartIo's other saves, so it can only be
+ * replaced by a newer snapshot, never land after one.
+ *
+ * Record layout: int payload length, payload (UTF seat id, byte flags,
+ * UTF name), int CRC32 of the payload. A torn or corrupt tail ends replay.
+ */
+class SeatJournal {
+
+    static final int COMPACT_AFTER_RECORDS = 500;
+
+    private static final int FLAG_DISABLED = 1;
+    private static final int FLAG_TARDY = 2;
+    private static final int MAX_RECORD = 1 << 20;
+
+    private final File chartFile;
+    private final File journalFile;
+    private final ChartIo io;
+
+    private List<byte[]> pending = new ArrayList<>();
+    private int recordsSinceCompaction = 0;
+
+    SeatJournal(File chartFile, ChartIo io) {
+        this.chartFile = chartFile;
+        this.journalFile = journalFileFor(chartFile);
+        this.io = io;
+    }
+
+    static File journalFileFor(File chartFile) {
+        String name = chartFile.getName();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return new File(chartFile.getParentFile(), base + ".journal");
+    }
+
+    File getChartFile() {
+        return chartFile;
+    }
+
+    /* ================= RECORDING (EDT) ================= */
+    void record(String seat, boolean disabled, boolean tardy, String name) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(32 + seat.length() + (name == null ? 0 : name.length()));
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeUTF(seat);
+            out.writeByte((disabled ? FLAG_DISABLED : 0) | (tardy ? FLAG_TARDY : 0));
+            out.writeUTF(name == null ? "" : name);
+            pending.add(bytes.toByteArray());
+            recordsSinceCompaction++;
+        } catch (IOException e) {
+            // ByteArrayOutputStream doesn't throw
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    boolean needsCompaction() {
+        return recordsSinceCompaction >= COMPACT_AFTER_RECORDS;
+    }
+
+    boolean isDirty() {
+        return recordsSinceCompaction > 0;
+    }
+
+    // Hands the batched records to the I/O thread to append and fsync.
+    void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<byte[]> batch = pending;
+        pending = new ArrayList<>();
+        io.submit(() -> {
+            append(batch);
+            return null;
+        }).exceptionally(error -> {
+            error.printStackTrace();
+            return null;
+        });
+    }
+
+    // Writes the chart, which already holds every recorded change, and
+    // truncates the journal once the chart is safely on disk. Unflushed
+    // records are appended first so a failed write loses nothing.
+    void compact(ChartSnapshot snapshot) {
+        flush();
+        recordsSinceCompaction = 0;
+        CompletableFuture<Void> written = io.saveChart(chartFile, snapshot);
+        io.submit(() -> {
+            // The write was queued first, so it has already landed or failed
+            written.join();
+            truncate(journalFile);
+            return null;
+        }).exceptionally(error -> {
+            error.printStackTrace();
+            return null;
+        });
+    }
+
+    // Writes the chart and truncates its journal, on the calling thread.
+    static void writeCompacted(File chartFile, ChartSnapshot snapshot) throws IOException {
+        ChartIo.writeChart(chartFile, snapshot);
+        truncate(journalFileFor(chartFile));
+    }
+
+    private static void truncate(File journalFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.force(true);
+        }
+    }
+
+    /* ================= I/O THREAD ================= */
+    private void append(List<byte[]> batch) throws IOException {
+        int size = 0;
+        for (byte[] payload : batch) {
+            size += 8 + payload.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        CRC32 crc = new CRC32();
+        for (byte[] payload : batch) {
+            crc.reset();
+            crc.update(payload, 0, payload.length);
+            buffer.putInt(payload.length).put(payload).putInt((int) crc.getValue());
+        }
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+
+    // Applies the journal for chartFile on top of chart and returns the number
+    // of records replayed. Records for seats not in the layout are skipped.
+    static int replay(File chartFile, ChartData chart) throws IOException {
+        File journalFile = journalFileFor(chartFile);
+        if (!journalFile.isFile()) {
+            return 0;
+        }
+
+        RoomLayout layout = chart.getLayout();
+        int replayed = 0;
+        CRC32 crc = new CRC32();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)))) {
+            while (true) {
+                byte[] payload;
+                try {
+                    int length = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                    crc.reset();
+                    crc.update(payload, 0, length);
+                    if (in.readInt() != (int) crc.getValue()) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                int seat;
+                int flags;
+                String name;
+                try {
+                    seat = layout.indexOf(record.readUTF());
+                    flags = record.readByte();
+                    name = record.readUTF();
+                } catch (IOException e) {
+                    // The checksum matched, so this isn't a torn tail
+                    throw new ChartFormatException("Bad record " + (replayed + 1) + " in " + journalFile, e);
+                }
+                if (seat >= 0) {
+                    chart.setDisabled(seat, (flags & FLAG_DISABLED) != 0);
+                    chart.setTardy(seat, (flags & FLAG_TARDY) != 0);
+                    chart.setName(seat, name);
+                }
+                replayed++;
+            }
+        }
+        return replayed;
+    }
+}
@@ -0,0 +1,192 @@
+import java.awt.*;
+import java.awt.event.*;
+import javax.swing.*;
+
+/*
+ * Paints a whole RoomLayout on one component, for rooms too large for a
+ * button per seat. Seats are hit-tested from the grid geometry, single seat
+ * changes repaint only that cell, and the fitted label text is cached per seat
+ * until its label or the cell width changes.
+ */
+@SuppressWarnings("serial") // Never serialized
+class SeatMapCanvas extends JComponent implements Scrollable {
+
+    interface SeatRenderer {
+        String getLabel(int seat);
+
+        Color getColor(int seat);
+    }
+
+    interface SeatClickHandler {
+        void seatClicked(int seat, Rectangle bounds);
+    }
+
+    private static final int GAP = 6;
+    private static final int MIN_CELL_WIDTH = 64;
+    private static final int MIN_CELL_HEIGHT = 30;
+
+    private final RoomLayout layout;
+    private final SeatRenderer renderer;
+    private final SeatClickHandler clickHandler;
+
+    private int cellWidth = MIN_CELL_WIDTH;
+    private int cellHeight = MIN_CELL_HEIGHT;
+
+    // Text layout cache, valid while cachedLabels[seat] is the current label
+    private final String[] cachedLabels;
+    private final String[] fittedLabels;
+    private final int[] textOffsets;
+    private int cachedCellWidth = -1;
+
+    SeatMapCanvas(RoomLayout layout, SeatRenderer renderer, SeatClickHandler clickHandler) {
+        this.layout = layout;
+        this.renderer = renderer;
+        this.clickHandler = clickHandler;
+        cachedLabels = new String[layout.seatCount()];
+        fittedLabels = new String[layout.seatCount()];
+        textOffsets = new int[layout.seatCount()];
+
+        setOpaque(true);
+        setBackground(new Color(45, 45, 60));
+        setFont(new Font("SansSerif", Font.BOLD, 12));
+
+        addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent e) {
+                int seat = seatAt(e.getX(), e.getY());
+                if (seat >= 0) {
+                    SeatMapCanvas.this.clickHandler.seatClicked(seat, getSeatBounds(seat));
+                }
+            }
+        });
+    }
+
+    /* ================= GEOMETRY ================= */
+    private void updateCellSize() {
+        cellWidth = Math.max(MIN_CELL_WIDTH, (getWidth() - GAP) / layout.columns() - GAP);
+        cellHeight = Math.max(MIN_CELL_HEIGHT, (getHeight() - GAP) / layout.rows() - GAP);
+    }
+
+    Rectangle getSeatBounds(int seat) {
+        return new Rectangle(
+                GAP + layout.seatColumn(seat) * (cellWidth + GAP),
+                GAP + layout.seatRow(seat) * (cellHeight + GAP),
+                cellWidth, cellHeight);
+    }
+
+    int seatAt(int x, int y) {
+        int column = (x - GAP) / (cellWidth + GAP);
+        int row = (y - GAP) / (cellHeight + GAP);
+        if (x < GAP || y < GAP || column >= layout.columns() || row >= layout.rows()) {
+            return -1;
+        }
+        // Clicks in the gutter between cells hit nothing
+        if ((x - GAP) % (cellWidth + GAP) >= cellWidth || (y - GAP) % (cellHeight + GAP) >= cellHeight) {
+            return -1;
+        }
+        return layout.cellAt(row, column);
+    }
+
+    public void setBounds(int x, int y, int width, int height) {
+        super.setBounds(x, y, width, height);
+        updateCellSize();
+    }
+
+    /* ================= REPAINT ================= */
+    void repaintSeat(int seat) {
+        if (seat >= 0) {
+            repaint(getSeatBounds(seat));
+        }
+    }
+
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g2.setFont(getFont());
+        FontMetrics metrics = g2.getFontMetrics();
+        if (cachedCellWidth != cellWidth) {
+            java.util.Arrays.fill(cachedLabels, null);
+            cachedCellWidth = cellWidth;
+        }
+
+        // Only the rows and columns that intersect the dirty region
+        int firstColumn = Math.max(0, (clip.x - GAP) / (cellWidth + GAP));
+        int lastColumn = Math.min(layout.columns() - 1, (clip.x + clip.width) / (cellWidth + GAP));
+        int firstRow = Math.max(0, (clip.y - GAP) / (cellHeight + GAP));
+        int lastRow = Math.min(layout.rows() - 1, (clip.y + clip.height) / (cellHeight + GAP));
+        int textY = (cellHeight - metrics.getHeight()) / 2 + metrics.getAscent();
+
+        for (int r = firstRow; r <= lastRow; r++) {
+            for (int c = firstColumn; c <= lastColumn; c++) {
+                int seat = layout.cellAt(r, c);
+                if (seat < 0) {
+                    continue;
+                }
+
+                int x = GAP + c * (cellWidth + GAP);
+                int y = GAP + r * (cellHeight + GAP);
+                g2.setColor(renderer.getColor(seat));
+                g2.fillRoundRect(x, y, cellWidth, cellHeight, 8, 8);
+
+                layoutText(seat, metrics);
+                g2.setColor(Color.WHITE);
+                g2.drawString(fittedLabels[seat], x + textOffsets[seat], y + textY);
+            }
+        }
+    }
+
+    private void layoutText(int seat, FontMetrics metrics) {
+        String label = renderer.getLabel(seat);
+        if (label.equals(cachedLabels[seat])) {
+            return;
+        }
+
+        String fitted = label;
+        int available = cellWidth - 8;
+        if (metrics.stringWidth(fitted) > available) {
+            int end = fitted.length();
+            while (end > 0 && metrics.stringWidth(fitted.substring(0, end) + "…") > available) {
+                end--;
+            }
+            fitted = fitted.substring(0, end) + "…";
+        }
+
+        cachedLabels[seat] = label;
+        fittedLabels[seat] = fitted;
+        textOffsets[seat] = Math.max(4, (cellWidth - metrics.stringWidth(fitted)) / 2);
+    }
+
+    /* ================= SCROLLING ================= */
+    public Dimension getPreferredSize() {
+        return new Dimension(
+                GAP + layout.columns() * (MIN_CELL_WIDTH + GAP),
+                GAP + layout.rows() * (MIN_CELL_HEIGHT + GAP));
+    }
+
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? cellHeight + GAP : cellWidth + GAP;
+    }
+
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visibleRect.height : visibleRect.width;
+    }
+
+    public boolean getScrollableTracksViewportWidth() {
+        return getParent() instanceof JViewport && getParent().getWidth() > getPreferredSize().width;
+    }
+
+    public boolean getScrollableTracksViewportHeight() {
+        return getParent() instanceof JViewport && getParent().getHeight() > getPreferredSize().height;
+    }
+}
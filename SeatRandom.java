@@ -0,0 +1,83 @@
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/*
+ * Seeded randomness for draws, shuffles and simulations. A session has one
+ * seed; every consumer gets its own SplittableRandom stream derived from the
+ * session seed and a key such as room / period / purpose, so streams don't
+ * share state, don't depend on the order they were created in, and the same
+ * seed reproduces the same sequence for the same key.
+ *
+ * The session seed comes from -Dseatpicker.seed=<hex> when set (for replays,
+ * benchmarks and simulations), otherwise from the JVM's seed generator.
+ */
+final class SeatRandom {
+
+    static final String SEED_PROPERTY = "seatpicker.seed";
+
+    private final long sessionSeed;
+
+    SeatRandom(long sessionSeed) {
+        this.sessionSeed = sessionSeed;
+    }
+
+    static SeatRandom fromSystemProperty() {
+        String seed = System.getProperty(SEED_PROPERTY);
+        if (seed != null && !seed.trim().isEmpty()) {
+            return new SeatRandom(parseSeed(seed));
+        }
+        return new SeatRandom(new SplittableRandom().nextLong());
+    }
+
+    // Seeds are written and read as unsigned hex
+    static long parseSeed(String seed) {
+        return Long.parseUnsignedLong(seed.trim(), 16);
+    }
+
+    static String formatSeed(long seed) {
+        return Long.toHexString(seed);
+    }
+
+    long getSessionSeed() {
+        return sessionSeed;
+    }
+
+    // Stream seed for the key, e.g. seedFor(roomKey, "P3", "seats")
+    long seedFor(String... key) {
+        long hash = sessionSeed;
+        for (String part : key) {
+            // FNV-1a over the part, with a separator so ("ab","c") != ("a","bc")
+            long fnv = 0xcbf29ce484222325L;
+            for (int i = 0; i < part.length(); i++) {
+                fnv = (fnv ^ part.charAt(i)) * 0x100000001b3L;
+            }
+            hash = mix64(hash ^ mix64(fnv ^ 0x1f));
+        }
+        return hash;
+    }
+
+    SplittableRandom streamFor(String... key) {
+        return new SplittableRandom(seedFor(key));
+    }
+
+    // Key part for a room, so two rooms' P3 streams differ
+    static String roomKey(RoomLayout layout) {
+        return "room-" + Long.toHexString(layout.fingerprint());
+    }
+
+    // SplitMix64 finalizer
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    // Fisher-Yates shuffle with any generator (Collections.shuffle only takes a Random)
+    static <T> void shuffle(List<T> list, RandomGenerator random) {
+        for (int i = list.size() - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            list.set(i, list.set(j, list.get(i)));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+import java.util.Arrays;
+import java.util.BitSet;
+
+/*
+ * Live seat labels, indexed by RoomLayout seat id: the student name in each
+ * seat plus an occupancy bitset, so "is anyone sitting here" is a bit test
+ * instead of comparing the label to the seat id. Disabled and tardy state
+ * stays in SeatDrawEngine's bitsets, which the pool is maintained from.
+ *
+ * Whole-chart operations (clear, copying to and from ChartData) are single
+ * passes over the arrays.
+ */
+class SeatStore {
+
+    private final RoomLayout layout;
+    private final String[] names;
+    private final BitSet occupied;
+
+    SeatStore(RoomLayout layout) {
+        this.layout = layout;
+        names = new String[layout.seatCount()];
+        occupied = new BitSet(layout.seatCount());
+    }
+
+    int seatCount() {
+        return names.length;
+    }
+
+    boolean isOccupied(int seat) {
+        return occupied.get(seat);
+    }
+
+    int occupiedCount() {
+        return occupied.cardinality();
+    }
+
+    // Student name in the seat, or null for an empty seat.
+    String getName(int seat) {
+        return names[seat];
+    }
+
+    // What the seat's buttons show: the student's name, or the seat id.
+    String getLabel(int seat) {
+        String name = names[seat];
+        return name != null ? name : layout.seatId(seat);
+    }
+
+    // A null or blank name empties the seat.
+    void setName(int seat, String name) {
+        String trimmed = name == null ? "" : name.trim();
+        names[seat] = trimmed.isEmpty() ? null : trimmed;
+        occupied.set(seat, names[seat] != null);
+    }
+
+    void swap(int first, int second) {
+        String name = names[first];
+        names[first] = names[second];
+        names[second] = name;
+        boolean wasOccupied = occupied.get(first);
+        occupied.set(first, occupied.get(second));
+        occupied.set(second, wasOccupied);
+    }
+
+    /* ================= BULK ================= */
+    void clear() {
+        Arrays.fill(names, null);
+        occupied.clear();
+    }
+
+    void copyTo(ChartData chart) {
+        for (int seat = 0; seat < names.length; seat++) {
+            chart.setName(seat, names[seat]);
+        }
+    }
+
+    void copyFrom(ChartData chart) {
+        occupied.clear();
+        for (int seat = 0; seat < names.length; seat++) {
+            names[seat] = chart.getName(seat);
+            if (names[seat] != null) {
+                occupied.set(seat);
+            }
+        }
+    }
+}
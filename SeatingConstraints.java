@@ -0,0 +1,128 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/*
+ * Seating rules for the constraint solver, read from P<n>_constraints.txt.
+ * Names are matched case-insensitively against the chart; rules naming
+ * students who aren't on it are ignored. Blank lines and "#" comments are
+ * skipped.
+ *
+ *   apart Alice Smith | Bob Jones      not next to each other (diagonals too)
+ *   apart 3 Alice Smith | Bob Jones    at least 3 cells apart
+ *   front Carol Diaz                   as close to the front row as possible
+ *   spread Dan | Eve | Frank | Gus     no two of them next to each other
+ */
+class SeatingConstraints {
+
+    static final int DEFAULT_APART_DISTANCE = 2;
+
+    // Students at least minDistance cells apart (Chebyshev distance on the
+    // layout grid, so aisles count as a cell)
+    static final class Apart {
+        final String first;
+        final String second;
+        final int minDistance;
+
+        Apart(String first, String second, int minDistance) {
+            this.first = first;
+            this.second = second;
+            this.minDistance = minDistance;
+        }
+    }
+
+    private final List<Apart> apart = new ArrayList<>();
+    private final List<String> front = new ArrayList<>();
+
+    List<Apart> getApart() {
+        return Collections.unmodifiableList(apart);
+    }
+
+    List<String> getFront() {
+        return Collections.unmodifiableList(front);
+    }
+
+    boolean isEmpty() {
+        return apart.isEmpty() && front.isEmpty();
+    }
+
+    void addApart(String first, String second, int minDistance) {
+        apart.add(new Apart(first, second, minDistance));
+    }
+
+    void addFront(String name) {
+        front.add(name);
+    }
+
+    static SeatingConstraints load(File file) throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    static SeatingConstraints parse(Reader reader) throws IOException {
+        SeatingConstraints constraints = new SeatingConstraints();
+        BufferedReader br = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+
+        while ((line = br.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            int space = line.indexOf(' ');
+            String rule = space < 0 ? line : line.substring(0, space);
+            String rest = space < 0 ? "" : line.substring(space + 1).trim();
+
+            if (rule.equals("front")) {
+                if (rest.isEmpty()) {
+                    throw new IOException("Expected a name after front on line " + lineNumber);
+                }
+                constraints.addFront(rest);
+            } else if (rule.equals("apart")) {
+                int distance = DEFAULT_APART_DISTANCE;
+                int nameStart = rest.indexOf(' ');
+                if (nameStart > 0 && rest.substring(0, nameStart).chars().allMatch(Character::isDigit)) {
+                    try {
+                        distance = Integer.parseInt(rest.substring(0, nameStart));
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Distance " + rest.substring(0, nameStart) + " is too large on line "
+                                + lineNumber);
+                    }
+                    rest = rest.substring(nameStart + 1).trim();
+                }
+                List<String> names = splitNames(rest);
+                if (names.size() != 2) {
+                    throw new IOException("Expected two names separated by | on line " + lineNumber);
+                }
+                constraints.addApart(names.get(0), names.get(1), distance);
+            } else if (rule.equals("spread")) {
+                List<String> names = splitNames(rest);
+                if (names.size() < 2) {
+                    throw new IOException("Expected names separated by | on line " + lineNumber);
+                }
+                for (int i = 0; i < names.size(); i++) {
+                    for (int j = i + 1; j < names.size(); j++) {
+                        constraints.addApart(names.get(i), names.get(j), DEFAULT_APART_DISTANCE);
+                    }
+                }
+            } else {
+                throw new IOException("Unknown rule " + rule + " on line " + lineNumber);
+            }
+        }
+        return constraints;
+    }
+
+    private static List<String> splitNames(String text) {
+        List<String> names = new ArrayList<>();
+        for (String part : text.split("\\|")) {
+            if (!part.trim().isEmpty()) {
+                names.add(part.trim());
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,240 @@
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.random.RandomGenerator;
+import java.util.stream.IntStream;
+
+/*
+ * Randomizes a chart under SeatingConstraints. Like ChartData.randomize it
+ * seats every name in the first seats in layout order, leaves the rest empty
+ * and disabled and clears tardies, but the order comes from simulated
+ * annealing over seat swaps instead of a plain shuffle.
+ *
+ * A swap is scored incrementally from the two students' own constraints, so
+ * a step costs O(constraints per student) however big the room is. One
+ * annealing run per core starts from its own random layout; all runs stop at
+ * the time budget, or as soon as any of them satisfies every constraint, and
+ * the best layout wins.
+ */
+class SeatingSolver {
+
+    static final long DEFAULT_BUDGET_MILLIS = 500;
+
+    private static final int APART_WEIGHT = 10;
+    private static final int FRONT_WEIGHT = 3;
+    private static final double START_TEMPERATURE = APART_WEIGHT;
+    private static final double END_TEMPERATURE = 0.05;
+    private static final int CLOCK_CHECK_STEPS = 256;
+
+    private final int slotCount;
+    private final int[] slotRow;
+    private final int[] slotColumn;
+    private final int frontRow;
+
+    // Per student: apart partners and their minimum distance, and front rule
+    private final int[][] partners;
+    private final int[][] partnerDistance;
+    private final boolean[] front;
+    private final int[] constrained;
+
+    private SeatingSolver(RoomLayout layout, int studentCount, List<int[]> apart, boolean[] front) {
+        slotCount = studentCount;
+        slotRow = new int[studentCount];
+        slotColumn = new int[studentCount];
+        int firstRow = Integer.MAX_VALUE;
+        for (int slot = 0; slot < studentCount; slot++) {
+            slotRow[slot] = layout.seatRow(slot);
+            slotColumn[slot] = layout.seatColumn(slot);
+            firstRow = Math.min(firstRow, slotRow[slot]);
+        }
+        frontRow = firstRow;
+        this.front = front;
+
+        int[] degree = new int[studentCount];
+        for (int[] rule : apart) {
+            degree[rule[0]]++;
+            degree[rule[1]]++;
+        }
+        partners = new int[studentCount][];
+        partnerDistance = new int[studentCount][];
+        for (int student = 0; student < studentCount; student++) {
+            partners[student] = new int[degree[student]];
+            partnerDistance[student] = new int[degree[student]];
+            degree[student] = 0;
+        }
+        for (int[] rule : apart) {
+            addPartner(rule[0], rule[1], rule[2], degree);
+            addPartner(rule[1], rule[0], rule[2], degree);
+        }
+
+        int count = 0;
+        int[] students = new int[studentCount];
+        for (int student = 0; student < studentCount; student++) {
+            if (front[student] || partners[student].length > 0) {
+                students[count++] = student;
+            }
+        }
+        constrained = Arrays.copyOf(students, count);
+    }
+
+    private void addPartner(int student, int partner, int distance, int[] filled) {
+        partners[student][filled[student]] = partner;
+        partnerDistance[student][filled[student]++] = distance;
+    }
+
+    /* ================= ENTRY POINT ================= */
+    // Reseats the chart and returns the remaining penalty, 0 when every
+    // constraint holds.
+    static int solve(ChartData chart, SeatingConstraints constraints, RandomGenerator random, long budgetMillis) {
+        List<String> names = new ArrayList<>();
+        Map<String, Integer> students = new HashMap<>();
+        for (int seat = 0; seat < chart.seatCount(); seat++) {
+            String name = chart.getName(seat);
+            if (name != null) {
+                students.putIfAbsent(name.toLowerCase(Locale.ROOT), names.size());
+                names.add(name);
+            }
+        }
+
+        List<int[]> apart = new ArrayList<>();
+        for (SeatingConstraints.Apart rule : constraints.getApart()) {
+            Integer first = students.get(rule.first.toLowerCase(Locale.ROOT));
+            Integer second = students.get(rule.second.toLowerCase(Locale.ROOT));
+            if (first != null && second != null && !first.equals(second)) {
+                apart.add(new int[] {first, second, rule.minDistance});
+            }
+        }
+        boolean[] front = new boolean[names.size()];
+        for (String name : constraints.getFront()) {
+            Integer student = students.get(name.toLowerCase(Locale.ROOT));
+            if (student != null) {
+                front[student] = true;
+            }
+        }
+
+        SeatingSolver solver = new SeatingSolver(chart.getLayout(), names.size(), apart, front);
+        if (solver.constrained.length == 0 || names.size() < 2) {
+            chart.randomize(random);
+            return 0;
+        }
+
+        long[] seeds = new long[Runtime.getRuntime().availableProcessors()];
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = random.nextLong();
+        }
+        long deadline = System.nanoTime() + budgetMillis * 1_000_000L;
+        AtomicBoolean solved = new AtomicBoolean();
+        Run best = IntStream.range(0, seeds.length).parallel()
+                .mapToObj(i -> solver.anneal(new SplittableRandom(seeds[i]), deadline, solved))
+                .min(Comparator.comparingInt(run -> run.cost))
+                .get();
+
+        for (int seat = 0; seat < chart.seatCount(); seat++) {
+            boolean filled = seat < names.size();
+            chart.setName(seat, filled ? names.get(best.studentAt[seat]) : null);
+            chart.setDisabled(seat, !filled);
+            chart.setTardy(seat, false);
+        }
+        return best.cost;
+    }
+
+    /* ================= ANNEALING ================= */
+    private static final class Run {
+        final int[] studentAt;
+        final int cost;
+
+        Run(int[] studentAt, int cost) {
+            this.studentAt = studentAt;
+            this.cost = cost;
+        }
+    }
+
+    private Run anneal(SplittableRandom random, long deadline, AtomicBoolean solved) {
+        int[] studentAt = new int[slotCount];
+        int[] slotOf = new int[slotCount];
+        for (int slot = 0; slot < slotCount; slot++) {
+            int pick = random.nextInt(slot + 1);
+            studentAt[slot] = studentAt[pick];
+            studentAt[pick] = slot;
+        }
+        for (int slot = 0; slot < slotCount; slot++) {
+            slotOf[studentAt[slot]] = slot;
+        }
+
+        int cost = totalCost(slotOf);
+        int bestCost = cost;
+        int[] best = studentAt.clone();
+        long start = System.nanoTime();
+        double temperature = START_TEMPERATURE;
+
+        for (long step = 0; cost > 0; step++) {
+            if (step % CLOCK_CHECK_STEPS == 0) {
+                long now = System.nanoTime();
+                if (now >= deadline || solved.get()) break;
+                double progress = (double) (now - start) / (deadline - start);
+                temperature = START_TEMPERATURE * Math.pow(END_TEMPERATURE / START_TEMPERATURE, progress);
+            }
+
+            // Move a constrained student; swaps between unconstrained ones never change the score
+            int a = constrained[random.nextInt(constrained.length)];
+            int from = slotOf[a];
+            int to = random.nextInt(slotCount);
+            if (to == from) continue;
+            int b = studentAt[to];
+
+            int delta = costAt(a, to, b, slotOf) - costAt(a, from, b, slotOf)
+                    + costAt(b, from, a, slotOf) - costAt(b, to, a, slotOf);
+            if (delta <= 0 || random.nextDouble() < Math.exp(-delta / temperature)) {
+                studentAt[from] = b;
+                studentAt[to] = a;
+                slotOf[a] = to;
+                slotOf[b] = from;
+                cost += delta;
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    System.arraycopy(studentAt, 0, best, 0, slotCount);
+                }
+            }
+        }
+
+        if (bestCost == 0) {
+            solved.set(true);
+        }
+        return new Run(best, bestCost);
+    }
+
+    private int totalCost(int[] slotOf) {
+        int cost = 0;
+        for (int student : constrained) {
+            // Pairs are counted from both ends, so halve them
+            cost += 2 * frontCost(student, slotOf[student]);
+            cost += pairCost(student, slotOf[student], -1, slotOf);
+        }
+        return cost / 2;
+    }
+
+    // Penalty for student sitting in slot with everyone else where they are,
+    // leaving out the pair with other (a swap never changes that distance).
+    private int costAt(int student, int slot, int other, int[] slotOf) {
+        return frontCost(student, slot) + pairCost(student, slot, other, slotOf);
+    }
+
+    private int frontCost(int student, int slot) {
+        return front[student] ? FRONT_WEIGHT * (slotRow[slot] - frontRow) : 0;
+    }
+
+    private int pairCost(int student, int slot, int other, int[] slotOf) {
+        int cost = 0;
+        int[] studentPartners = partners[student];
+        for (int i = 0; i < studentPartners.length; i++) {
+            int partner = studentPartners[i];
+            if (partner == other) continue;
+            int partnerSlot = slotOf[partner];
+            int distance = Math.max(Math.abs(slotRow[slot] - slotRow[partnerSlot]),
+                    Math.abs(slotColumn[slot] - slotColumn[partnerSlot]));
+            if (distance < partnerDistance[student][i]) {
+                cost += APART_WEIGHT * (partnerDistance[student][i] - distance);
+            }
+        }
+        return cost;
+    }
+}
@@ -0,0 +1,93 @@
+import java.io.*;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+
+/*
+ * Fixtures for the JMH suite in jmh/bench: a room of the given size, a
+ * roster filling part of it, and one operation per hot path (seat draws,
+ * pool rebuilds as in initSeats, chart randomize, chart CSV write/read and
+ * attendance export). The benchmarks have to live in a named package, so
+ * they can't see these package-private classes; they look up ops() once at
+ * setup and only call the returned operations while measuring.
+ */
+public class SeatBench {
+
+    private SeatBench() {
+    }
+
+    // Benchmark name -> operation. Each returns its result for JMH to
+    // consume, so the JIT can't drop the work being measured.
+    public static Map<String, Callable<Object>> ops(int seats, double fill) throws IOException {
+        RoomLayout layout = layoutOf(seats);
+        ChartData chart = new ChartData(layout);
+        int names = (int) Math.round(seats * fill);
+        for (int seat = 0; seat < names; seat++) {
+            chart.setName(seat, "Student " + seat + ", Example");
+        }
+        for (int seat = 0; seat < seats; seat += 7) {
+            chart.setDisabled(seat, true);
+        }
+        for (int seat = 3; seat < seats; seat += 11) {
+            chart.setTardy(seat, !chart.isDisabled(seat));
+        }
+
+        SeatDrawEngine engine = new SeatDrawEngine(layout, new SplittableRandom(7));
+        for (int seat = 0; seat < seats; seat++) {
+            engine.setDisabled(seat, chart.isDisabled(seat));
+        }
+        engine.reset();
+
+        StringWriter out = new StringWriter();
+        ChartCodec.write(out, chart);
+        String csv = out.toString();
+        SplittableRandom random = new SplittableRandom(42);
+
+        Map<String, Callable<Object>> ops = new HashMap<>();
+        // Results are existing objects, so boxing doesn't show up in B/op
+        ops.put("draw", () -> engine.seatId(engine.next()));
+        ops.put("reset", () -> {
+            engine.reset();
+            return engine;
+        });
+        ops.put("randomize", () -> {
+            chart.randomize(random);
+            return chart;
+        });
+        ops.put("write", () -> {
+            ChartCodec.write(Writer.nullWriter(), chart);
+            return chart;
+        });
+        ops.put("read", () -> ChartCodec.read(new StringReader(csv), layout));
+        // exportAttendance's default format, written as AttendanceBatch writes one period
+        AttendanceExporter exporter = AttendanceExporter.forName("text");
+        LocalDate date = LocalDate.of(2024, 9, 3);
+        ops.put("export", () -> {
+            Writer sink = Writer.nullWriter();
+            exporter.writeHeader(sink, false);
+            exporter.writePeriod(sink, date, "P1", chart, 0, false);
+            exporter.writeFooter(sink, false);
+            return chart;
+        });
+        return ops;
+    }
+
+    // A lecture-hall grid: rows of up to 40 seats split by a center aisle.
+    static RoomLayout layoutOf(int seats) throws IOException {
+        StringBuilder text = new StringBuilder();
+        int perRow = Math.min(40, Math.max(8, (int) Math.ceil(Math.sqrt(seats * 2.0))));
+        for (int placed = 0, row = 0; placed < seats; row++) {
+            int count = Math.min(perRow, seats - placed);
+            int left = (count + 1) / 2;
+            text.append('R').append(row).append('S').append(1).append('-').append(left);
+            if (count > left) {
+                text.append(" | R").append(row).append('S').append(left + 1).append('-').append(count);
+            }
+            text.append('\n');
+            placed += count;
+        }
+        return RoomLayout.parse(new StringReader(text.toString()));
+    }
+}
@@ -0,0 +1,89 @@
+package bench;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/*
+ * JMH suite for the picker's hot paths, over room sizes from the default 36
+ * seats up to 2,000 and two roster fill levels. Fixtures come from the
+ * default-package SeatBench.
+ *
+ *   mvn -B -Pjmh package
+ *   java -jar target/benchmarks.jar -prof gc               everything, with B/op
+ *   java -jar target/benchmarks.jar draw -p seats=36,2000  one benchmark, chosen sizes
+ *
+ * -prof gc adds gc.alloc.rate and gc.alloc.rate.norm (bytes per op) next to
+ * the throughput.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeatBenchmarks {
+
+    @Param({"36", "200", "500", "1000", "2000"})
+    int seats;
+
+    @Param({"0.5", "1.0"})
+    double fill;
+
+    private Callable<Object> draw;
+    private Callable<Object> reset;
+    private Callable<Object> randomize;
+    private Callable<Object> write;
+    private Callable<Object> read;
+    private Callable<Object> export;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        Method fixture = Class.forName("SeatBench").getMethod("ops", int.class, double.class);
+        Map<String, Callable<Object>> ops = (Map<String, Callable<Object>>) fixture.invoke(null, seats, fill);
+        draw = ops.get("draw");
+        reset = ops.get("reset");
+        randomize = ops.get("randomize");
+        write = ops.get("write");
+        read = ops.get("read");
+        export = ops.get("export");
+    }
+
+    // getNextSeat
+    @Benchmark
+    public Object draw() throws Exception {
+        return draw.call();
+    }
+
+    // initSeats' pool rebuild
+    @Benchmark
+    public Object reset() throws Exception {
+        return reset.call();
+    }
+
+    @Benchmark
+    public Object randomize() throws Exception {
+        return randomize.call();
+    }
+
+    // saveSeatingChart's CSV encoding
+    @Benchmark
+    public Object write() throws Exception {
+        return write.call();
+    }
+
+    // loadSeatingChart's CSV parsing
+    @Benchmark
+    public Object read() throws Exception {
+        return read.call();
+    }
+
+    // exportAttendance's report
+    @Benchmark
+    public Object export() throws Exception {
+        return export.call();
+    }
+}